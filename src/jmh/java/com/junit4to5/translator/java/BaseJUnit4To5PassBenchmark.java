@@ -0,0 +1,149 @@
+package com.junit4to5.translator.java;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.antlr.v4.runtime.CharStreams;
+import org.antlr.v4.runtime.CommonTokenStream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import antlr.java.JavaLexer;
+import antlr.java.JavaParser;
+
+/**
+ * Allocation of the {@link BaseJUnit4To5Pass} helpers over the class body declarations of a JUnit 4 test. Running
+ * the class checks the bytes allocated per operation, as reported by the GC profiler, against {@link #BUDGETS}.
+ */
+@State(org.openjdk.jmh.annotations.Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BaseJUnit4To5PassBenchmark {
+    private static final String TEST_CLASS = """
+        public class CalculatorTest {
+            @Rule
+            public TestName testName = new TestName();
+            @Rule
+            public final ExpectedException thrown = ExpectedException.none();
+            @org.junit.Rule
+            public TemporaryFolder folder = new TemporaryFolder();
+            private static final int FIRST = 1, SECOND = 2, THIRD = 3;
+            private final Calculator calculator = new Calculator();
+            @Mock
+            protected Map<String, List<Integer>> results;
+
+            @Before
+            public void setUp() {
+            }
+
+            @Test
+            public void addsNumbers() {
+                assertEquals(3, calculator.add(FIRST, SECOND));
+            }
+        }
+        """;
+
+    /**
+     * Bytes allocated per operation, over all the declarations of the test class: an {@link java.util.Optional}
+     * per public declaration, the text of each identifier whose length matches the name looked for, and the names
+     * and resolved types of the declared variables.
+     */
+    private static final Map<String, Long> BUDGETS = Map.of(
+        "maybePublicToken", 80L,
+        "isRule", 288L,
+        "isTestNameRule", 144L,
+        "declareInstanceVariables", 3176L);
+
+    private final BaseJUnit4To5Pass pass = new BaseJUnit4To5Pass() {
+    };
+    private List<JavaParser.ClassBodyDeclarationContext> declarations;
+    private List<JavaParser.FieldDeclarationContext> fieldDeclarations;
+    private Scope classScope;
+
+    @Setup
+    public void parse() {
+        var parser = new JavaParser(new CommonTokenStream(new JavaLexer(CharStreams.fromString(TEST_CLASS))));
+        declarations = parser.compilationUnit().typeDeclaration(0).classDeclaration().classBody()
+            .classBodyDeclaration();
+        fieldDeclarations = new ArrayList<>();
+        for (JavaParser.ClassBodyDeclarationContext declaration : declarations) {
+            JavaParser.MemberDeclarationContext memberDeclaration = declaration.memberDeclaration();
+            fieldDeclarations.add(memberDeclaration != null ? memberDeclaration.fieldDeclaration() : null);
+        }
+        classScope = ScopeStack.global().nested(BaseJUnit4To5Pass.CLASS_SCOPE);
+    }
+
+    @Benchmark
+    public void maybePublicToken(Blackhole blackhole) {
+        for (JavaParser.ClassBodyDeclarationContext declaration : declarations) {
+            blackhole.consume(pass.maybePublicToken(declaration));
+        }
+    }
+
+    @Benchmark
+    public void isRule(Blackhole blackhole) {
+        for (JavaParser.ClassBodyDeclarationContext declaration : declarations) {
+            blackhole.consume(pass.isRule(declaration));
+        }
+    }
+
+    @Benchmark
+    public void isTestNameRule(Blackhole blackhole) {
+        for (int i = 0; i < declarations.size(); i++) {
+            if (fieldDeclarations.get(i) != null) {
+                blackhole.consume(pass.isTestNameRule(declarations.get(i), fieldDeclarations.get(i)));
+            }
+        }
+    }
+
+    @Benchmark
+    public void declareInstanceVariables() {
+        Scope scope = classScope.nested();
+        for (JavaParser.ClassBodyDeclarationContext declaration : declarations) {
+            pass.declareInstanceVariables(declaration, scope);
+        }
+        scope.enclosing();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        List<String> overBudget = new ArrayList<>();
+        for (RunResult runResult : new Runner(new OptionsBuilder()
+            .include(BaseJUnit4To5PassBenchmark.class.getName())
+            .addProfiler(GCProfiler.class)
+            .build()).run()) {
+            String label = runResult.getParams().getBenchmark();
+            String benchmark = label.substring(label.lastIndexOf('.') + 1);
+            Result<?> allocated = runResult.getSecondaryResults().get("gc.alloc.rate.norm");
+            if (allocated == null) {
+                throw new IllegalStateException("The GC profiler reported no allocation for " + benchmark);
+            }
+            long budget = BUDGETS.getOrDefault(benchmark, 0L);
+            if (Math.round(allocated.getScore()) > budget) {
+                overBudget.add("%s allocates %.1f B/op, over its budget of %d B/op"
+                    .formatted(benchmark, allocated.getScore(), budget));
+            }
+        }
+        if (!overBudget.isEmpty()) {
+            throw new IllegalStateException(String.join("\n", overBudget));
+        }
+    }
+}
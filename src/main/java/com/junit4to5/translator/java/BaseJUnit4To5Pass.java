@@ -1,38 +1,66 @@
 package com.junit4to5.translator.java;
 
-import java.util.Objects;
 import java.util.Optional;
-import java.util.stream.Stream;
 
+import org.antlr.v4.runtime.ParserRuleContext;
 import org.antlr.v4.runtime.Token;
-import org.antlr.v4.runtime.tree.TerminalNode;
+import org.antlr.v4.runtime.tree.ParseTree;
+import org.antlr.v4.runtime.tree.RuleNode;
 
+import antlr.java.JavaLexer;
 import antlr.java.JavaParser;
 import antlr.java.JavaParserBaseVisitor;
 
+/**
+ * Helpers inspecting declarations for every pass. They run for each class body declaration of each pass, so they walk
+ * the children of the declaration directly and match token types and identifier tokens rather than building child
+ * lists, streams and node texts.
+ */
 abstract class BaseJUnit4To5Pass extends JavaParserBaseVisitor<Void> {
     static final String CLASS_SCOPE = "class";
     static final String TEST_NAME_RULE = "TEST_NAME_RULE";
 
-    Optional<Token> maybePublicToken(Stream<JavaParser.ClassOrInterfaceModifierContext> modifiersStream) {
-        return modifiersStream
-            .map(JavaParser.ClassOrInterfaceModifierContext::PUBLIC)
-            .filter(Objects::nonNull)
-            .map(TerminalNode::getSymbol)
-            .findFirst();
+    @Override
+    public Void visitChildren(RuleNode node) {
+        Deadline.check();
+        return super.visitChildren(node);
+    }
+
+    /**
+     * The {@code public} modifier among the leading modifiers of a type or class body declaration.
+     */
+    Optional<Token> maybePublicToken(ParserRuleContext declaration) {
+        for (int i = 0; i < declaration.getChildCount(); i++) {
+            ParseTree child = declaration.getChild(i);
+            if (!(child instanceof JavaParser.ModifierContext) &&
+                !(child instanceof JavaParser.ClassOrInterfaceModifierContext)) {
+                break;
+            }
+            Token start = ((ParserRuleContext) child).getStart();
+            if (start.getType() == JavaLexer.PUBLIC) {
+                return Optional.of(start);
+            }
+        }
+        return Optional.empty();
     }
 
     void declareInstanceVariables(
         JavaParser.ClassBodyDeclarationContext classBodyDeclaration,
         Scope currentScope
     ) {
-        Optional.ofNullable(classBodyDeclaration.memberDeclaration())
-            .map(JavaParser.MemberDeclarationContext::fieldDeclaration)
-            .ifPresent(fieldDeclaration -> {
-                String variableType = getFieldDeclarationType(classBodyDeclaration, fieldDeclaration);
-                fieldDeclaration.variableDeclarators().variableDeclarator()
-                    .forEach(v -> currentScope.declare(v.variableDeclaratorId().getText(), variableType));
-            });
+        JavaParser.MemberDeclarationContext memberDeclaration = classBodyDeclaration.memberDeclaration();
+        JavaParser.FieldDeclarationContext fieldDeclaration =
+            memberDeclaration != null ? memberDeclaration.fieldDeclaration() : null;
+        if (fieldDeclaration == null) {
+            return;
+        }
+        String variableType = getFieldDeclarationType(classBodyDeclaration, fieldDeclaration);
+        JavaParser.VariableDeclaratorsContext variableDeclarators = fieldDeclaration.variableDeclarators();
+        for (int i = 0; i < variableDeclarators.getChildCount(); i++) {
+            if (variableDeclarators.getChild(i) instanceof JavaParser.VariableDeclaratorContext v) {
+                currentScope.declare(v.variableDeclaratorId().getText(), variableType);
+            }
+        }
     }
 
     private String getFieldDeclarationType(
@@ -48,24 +76,42 @@ abstract class BaseJUnit4To5Pass extends JavaParserBaseVisitor<Void> {
         JavaParser.ClassBodyDeclarationContext classBodyDeclaration,
         JavaParser.FieldDeclarationContext fieldDeclaration
     ) {
-        if (isRule(classBodyDeclaration)) {
-            return Optional.ofNullable(fieldDeclaration.typeType().classOrInterfaceType())
-                .filter(t -> t.getText().equals("TestName"))
-                .isPresent();
-        }
-        return false;
+        JavaParser.ClassOrInterfaceTypeContext type = fieldDeclaration.typeType().classOrInterfaceType();
+        return type != null &&
+               type.getChildCount() == 1 &&
+               hasText(type.getStart(), "TestName") &&
+               isRule(classBodyDeclaration);
     }
 
     boolean isRule(JavaParser.ClassBodyDeclarationContext classBodyDeclaration) {
-        return getAnnotationsStream(classBodyDeclaration)
-            .anyMatch(a -> a.qualifiedName().getText().equals("Rule"));
+        return hasAnnotation(classBodyDeclaration, "Rule");
+    }
+
+    /**
+     * Tells whether the declaration is annotated with the given simple, unqualified annotation name.
+     */
+    boolean hasAnnotation(JavaParser.ClassBodyDeclarationContext ctx, String name) {
+        for (int i = 0; i < ctx.getChildCount(); i++) {
+            if (!(ctx.getChild(i) instanceof JavaParser.ModifierContext modifier)) {
+                break;
+            }
+            JavaParser.ClassOrInterfaceModifierContext classOrInterfaceModifier = modifier.classOrInterfaceModifier();
+            JavaParser.AnnotationContext annotation =
+                classOrInterfaceModifier != null ? classOrInterfaceModifier.annotation() : null;
+            JavaParser.QualifiedNameContext qualifiedName = annotation != null ? annotation.qualifiedName() : null;
+            if (qualifiedName != null &&
+                qualifiedName.getChildCount() == 1 &&
+                hasText(qualifiedName.getStart(), name)) {
+                return true;
+            }
+        }
+        return false;
     }
 
-    Stream<JavaParser.AnnotationContext> getAnnotationsStream(JavaParser.ClassBodyDeclarationContext ctx) {
-        return ctx.modifier().stream()
-            .map(JavaParser.ModifierContext::classOrInterfaceModifier)
-            .filter(Objects::nonNull)
-            .map(JavaParser.ClassOrInterfaceModifierContext::annotation)
-            .filter(Objects::nonNull);
+    /**
+     * Compares the token text, only reading it from the input when its length already matches.
+     */
+    static boolean hasText(Token token, String text) {
+        return token.getStopIndex() - token.getStartIndex() + 1 == text.length() && text.equals(token.getText());
     }
 }
@@ -0,0 +1,105 @@
+package com.junit4to5.translator.java;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Encodes appended text as UTF-8 straight into a channel, through a char buffer, an encoder and a direct byte
+ * buffer that are reused by every writer opened on the same thread.
+ */
+final class ChannelTextWriter implements Appendable, Closeable {
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final ThreadLocal<CharBuffer> CHAR_BUFFERS =
+        ThreadLocal.withInitial(() -> CharBuffer.allocate(BUFFER_SIZE));
+    private static final ThreadLocal<ByteBuffer> BYTE_BUFFERS =
+        ThreadLocal.withInitial(() -> ByteBuffer.allocateDirect(BUFFER_SIZE));
+    private static final ThreadLocal<CharsetEncoder> ENCODERS =
+        ThreadLocal.withInitial(StandardCharsets.UTF_8::newEncoder);
+
+    private final WritableByteChannel channel;
+    private final CharBuffer chars;
+    private final ByteBuffer bytes;
+    private final CharsetEncoder encoder;
+
+    private ChannelTextWriter(WritableByteChannel channel) {
+        this.channel = channel;
+        chars = CHAR_BUFFERS.get().clear();
+        bytes = BYTE_BUFFERS.get().clear();
+        encoder = ENCODERS.get().reset();
+    }
+
+    static ChannelTextWriter open(WritableByteChannel channel) {
+        return new ChannelTextWriter(channel);
+    }
+
+    @Override
+    public ChannelTextWriter append(CharSequence csq) throws IOException {
+        return append(csq, 0, csq.length());
+    }
+
+    @Override
+    public ChannelTextWriter append(CharSequence csq, int start, int end) throws IOException {
+        int position = start;
+        while (position < end) {
+            if (!chars.hasRemaining()) {
+                encode(false);
+            }
+            int length = Math.min(chars.remaining(), end - position);
+            if (csq instanceof String s) {
+                chars.put(s, position, position + length);
+            } else {
+                chars.append(csq, position, position + length);
+            }
+            position += length;
+        }
+        return this;
+    }
+
+    @Override
+    public ChannelTextWriter append(char c) throws IOException {
+        if (!chars.hasRemaining()) {
+            encode(false);
+        }
+        chars.put(c);
+        return this;
+    }
+
+    private void encode(boolean endOfInput) throws IOException {
+        chars.flip();
+        while (true) {
+            CoderResult result = encoder.encode(chars, bytes, endOfInput);
+            if (result.isOverflow()) {
+                writeBytes();
+            } else if (result.isUnderflow()) {
+                break;
+            } else {
+                result.throwException();
+            }
+        }
+        // keeps a trailing high surrogate until its pair is appended
+        chars.compact();
+    }
+
+    private void writeBytes() throws IOException {
+        bytes.flip();
+        while (bytes.hasRemaining()) {
+            channel.write(bytes);
+        }
+        bytes.clear();
+    }
+
+    @Override
+    public void close() throws IOException {
+        encode(true);
+        while (encoder.flush(bytes).isOverflow()) {
+            writeBytes();
+        }
+        writeBytes();
+    }
+}
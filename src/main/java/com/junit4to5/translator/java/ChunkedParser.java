@@ -0,0 +1,222 @@
+package com.junit4to5.translator.java;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+import org.antlr.v4.runtime.BufferedTokenStream;
+import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.ListTokenSource;
+import org.antlr.v4.runtime.ParserRuleContext;
+import org.antlr.v4.runtime.Token;
+import org.antlr.v4.runtime.WritableToken;
+
+import antlr.java.JavaLexer;
+import antlr.java.JavaParser;
+
+/**
+ * Parses huge files, typically generated test classes with thousands of methods, in parallel. The body of the first
+ * top-level class is split at its member boundaries, found by matching braces over the tokens, and the members are
+ * parsed in chunks on the common pool while the rest of the file is parsed with an empty class body, which then
+ * receives the parsed members.
+ * <p>
+ * Every chunk parser numbers the tokens it reads from zero, so the token indices are restored once all of them are
+ * done. Files which cannot be split, or whose chunks do not parse cleanly, are left to the regular parser, which then
+ * reports their errors.
+ */
+final class ChunkedParser {
+    private static final int LARGE_FILE_TOKENS = 50_000;
+    private static final int CHUNK_TOKENS = 5_000;
+
+    private ChunkedParser() {
+    }
+
+    /**
+     * Parses the lexed tokens in chunks when the file is large enough and can be split.
+     */
+    static Optional<JavaParser.CompilationUnitContext> maybeParse(BufferedTokenStream tokens) {
+        tokens.fill();
+        if (tokens.size() < LARGE_FILE_TOKENS) {
+            return Optional.empty();
+        }
+        List<Token> allTokens = tokens.getTokens();
+        int bodyStart = classBodyStart(allTokens);
+        List<int[]> members = bodyStart != -1 ? members(allTokens, bodyStart) : List.of();
+        if (members.size() < 2) {
+            return Optional.empty();
+        }
+        int bodyEnd = members.get(members.size() - 1)[1] + 1;
+
+        List<Future<List<JavaParser.ClassBodyDeclarationContext>>> parsedChunks = new ArrayList<>();
+        int chunkStart = members.get(0)[0];
+        for (int i = 0; i < members.size(); i++) {
+            boolean isLast = i == members.size() - 1;
+            int chunkEnd = isLast ? bodyEnd - 1 : members.get(i + 1)[0] - 1;
+            if (isLast || chunkEnd - chunkStart >= CHUNK_TOKENS) {
+                List<Token> chunkTokens = new ArrayList<>(allTokens.subList(chunkStart, chunkEnd + 1));
+                parsedChunks.add(ForkJoinPool.commonPool().submit(Deadline.propagate(() -> parseMembers(chunkTokens))));
+                chunkStart = chunkEnd + 1;
+            }
+        }
+        List<Token> skeletonTokens = new ArrayList<>(allTokens.subList(0, bodyStart + 1));
+        // the end of file token is added back by the token source
+        skeletonTokens.addAll(allTokens.subList(bodyEnd, allTokens.size() - 1));
+
+        Optional<JavaParser.CompilationUnitContext> maybeSkeleton = parseSkeleton(skeletonTokens);
+        List<JavaParser.ClassBodyDeclarationContext> parsedMembers = new ArrayList<>();
+        for (var parsedChunk : parsedChunks) {
+            parsedMembers.addAll(join(parsedChunk));
+        }
+        for (int i = 0; i < allTokens.size(); i++) {
+            ((WritableToken) allTokens.get(i)).setTokenIndex(i);
+        }
+        if (maybeSkeleton.isEmpty() || parsedMembers.contains(null)) {
+            return Optional.empty();
+        }
+
+        JavaParser.CompilationUnitContext compilationUnit = maybeSkeleton.get();
+        JavaParser.ClassBodyContext classBody = compilationUnit.typeDeclaration(0).classDeclaration().classBody();
+        if (classBody.getStart() != allTokens.get(bodyStart) || classBody.getChildCount() != 2) {
+            return Optional.empty();
+        }
+        parsedMembers.forEach(member -> member.setParent(classBody));
+        classBody.children.addAll(1, parsedMembers);
+        return Optional.of(compilationUnit);
+    }
+
+    /**
+     * The index of the opening brace of the first top-level class, or -1 when the file does not start with one.
+     */
+    private static int classBodyStart(List<Token> tokens) {
+        int braces = 0;
+        Token previous = null;
+        boolean isClass = false;
+        for (int i = 0; i < tokens.size(); i++) {
+            Token token = tokens.get(i);
+            if (token.getChannel() != Token.DEFAULT_CHANNEL) {
+                continue;
+            }
+            switch (token.getType()) {
+                case JavaLexer.CLASS -> {
+                    if (braces == 0 && (previous == null || previous.getType() != JavaLexer.DOT)) {
+                        isClass = true;
+                    }
+                }
+                case JavaLexer.INTERFACE, JavaLexer.ENUM -> {
+                    if (braces == 0 && !isClass) {
+                        return -1;
+                    }
+                }
+                case JavaLexer.LBRACE -> {
+                    if (braces == 0) {
+                        return isClass ? i : -1;
+                    }
+                    braces++;
+                }
+                case JavaLexer.RBRACE -> braces--;
+                default -> {
+                }
+            }
+            previous = token;
+        }
+        return -1;
+    }
+
+    /**
+     * The first and last token index of each member of the class body, hidden tokens before a member belonging to
+     * it, or none when the braces do not match. A member ends with a semicolon, or with the brace closing its body
+     * unless it is a field whose initializer holds the braces.
+     */
+    private static List<int[]> members(List<Token> tokens, int bodyStart) {
+        List<int[]> members = new ArrayList<>();
+        int braces = 1;
+        int parentheses = 0;
+        int memberStart = bodyStart + 1;
+        boolean isMemberOpen = false;
+        boolean isField = false;
+        for (int i = bodyStart + 1; i < tokens.size(); i++) {
+            Token token = tokens.get(i);
+            if (token.getChannel() != Token.DEFAULT_CHANNEL) {
+                continue;
+            }
+            boolean isAtMemberLevel = braces == 1 && parentheses == 0;
+            boolean endsMember = false;
+            switch (token.getType()) {
+                case JavaLexer.LPAREN -> parentheses++;
+                case JavaLexer.RPAREN -> parentheses--;
+                case JavaLexer.LBRACE -> braces++;
+                case JavaLexer.RBRACE -> {
+                    braces--;
+                    if (braces == 0) {
+                        return parentheses == 0 && !isMemberOpen ? members : List.of();
+                    }
+                    endsMember = braces == 1 && parentheses == 0 && !isField;
+                }
+                case JavaLexer.ASSIGN -> isField |= isAtMemberLevel;
+                case JavaLexer.SEMI -> endsMember = isAtMemberLevel;
+                default -> {
+                }
+            }
+            if (parentheses < 0 || token.getType() == Token.EOF) {
+                return List.of();
+            }
+            if (endsMember) {
+                members.add(new int[]{memberStart, i});
+                memberStart = i + 1;
+                isMemberOpen = false;
+                isField = false;
+            } else {
+                isMemberOpen = true;
+            }
+        }
+        return List.of();
+    }
+
+    /**
+     * Parses the members of a chunk, or returns a null member when the chunk does not parse cleanly.
+     */
+    private static List<JavaParser.ClassBodyDeclarationContext> parseMembers(List<Token> chunkTokens) {
+        JavaParser parser = parser(chunkTokens);
+        List<JavaParser.ClassBodyDeclarationContext> members = new ArrayList<>();
+        while (parser.getCurrentToken().getType() != Token.EOF) {
+            int before = parser.getCurrentToken().getTokenIndex();
+            members.add(parser.classBodyDeclaration());
+            if (parser.getNumberOfSyntaxErrors() > 0 || parser.getCurrentToken().getTokenIndex() == before) {
+                members.add(null);
+                break;
+            }
+        }
+        return members;
+    }
+
+    private static Optional<JavaParser.CompilationUnitContext> parseSkeleton(List<Token> skeletonTokens) {
+        JavaParser parser = parser(skeletonTokens);
+        JavaParser.CompilationUnitContext compilationUnit = parser.compilationUnit();
+        return parser.getNumberOfSyntaxErrors() == 0 ? Optional.of(compilationUnit) : Optional.empty();
+    }
+
+    private static JavaParser parser(List<Token> tokens) {
+        CommonTokenStream tokenStream = Deadline.checkedTokenStream(new ListTokenSource(tokens));
+        JavaParser parser = new JavaParser(tokenStream);
+        parser.setBuildParseTree(true);
+        parser.removeErrorListeners();
+        return parser;
+    }
+
+    private static <T> T join(Future<T> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while parsing", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException("Failed to parse", e.getCause());
+        }
+    }
+}
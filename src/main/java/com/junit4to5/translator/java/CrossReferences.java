@@ -2,10 +2,11 @@ package com.junit4to5.translator.java;
 
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
-import java.util.stream.Stream;
+import java.util.Set;
 
 class CrossReferences {
 
@@ -71,6 +72,28 @@ class CrossReferences {
             .anyMatch(m -> m.usages() > 0);
     }
 
+    /**
+     * Keys of the type and its overloaded methods which are referenced from other classes,
+     * i.e. the facts {@link #hasCrossReference} answers from.
+     */
+    public Set<String> referencedKeys(String type) {
+        Set<String> keys = new HashSet<>();
+        if (hasCrossReference(type)) {
+            keys.add(type);
+        }
+        String methodKeyPrefix = buildMethodKey(type, "");
+        methods.forEach((methodKey, overloads) -> {
+            if (methodKey.startsWith(methodKeyPrefix)) {
+                for (int i = 0; i < overloads.size(); i++) {
+                    if (overloads.get(i).usages() > 0) {
+                        keys.add(methodKey + ":" + i);
+                    }
+                }
+            }
+        });
+        return keys;
+    }
+
     public void incrementType(String type) {
         if (!values.containsKey(type)) {
             throw new IllegalStateException("Unknown type cross reference: " + type);
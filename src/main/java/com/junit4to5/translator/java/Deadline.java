@@ -0,0 +1,93 @@
+package com.junit4to5.translator.java;
+
+import java.time.Duration;
+import java.util.concurrent.Callable;
+
+import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.TokenSource;
+
+/**
+ * Time budget of the file step running on the current thread. The parser, through its token stream, and the passes,
+ * through the nodes they visit, check it cooperatively and give up on the file once it is exceeded. The clock is
+ * only read every few checks, so checking stays cheap enough for every node and lookahead.
+ */
+final class Deadline {
+    private static final int CHECK_INTERVAL = 1024;
+    private static final Deadline NONE = new Deadline(Duration.ZERO);
+    private static final ThreadLocal<Deadline> CURRENT = ThreadLocal.withInitial(() -> NONE);
+
+    private final Duration budget;
+    private final long expiresAt;
+    private int checks;
+
+    private Deadline(Duration budget) {
+        this.budget = budget;
+        expiresAt = System.nanoTime() + budget.toNanos();
+    }
+
+    /**
+     * Thrown by the check exceeding the budget.
+     */
+    static final class ExceededException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        private ExceededException(Duration budget) {
+            super("Exceeded the time budget of %ss".formatted(budget.toMillis() / 1000.0), null, false, false);
+        }
+    }
+
+    interface Step<E extends Exception> {
+        void run() throws E;
+    }
+
+    /**
+     * Runs the step with the budget as the deadline of the current thread, or without a deadline when the budget
+     * is zero.
+     */
+    static <E extends Exception> void within(Duration budget, Step<E> step) throws E {
+        Deadline previous = CURRENT.get();
+        CURRENT.set(budget.isZero() ? NONE : new Deadline(budget));
+        try {
+            step.run();
+        } finally {
+            CURRENT.set(previous);
+        }
+    }
+
+    /**
+     * Wraps the task to run under the deadline of the current thread, for the threads a step hands its work to.
+     */
+    static <T> Callable<T> propagate(Callable<T> task) {
+        Deadline deadline = CURRENT.get();
+        return () -> {
+            Deadline previous = CURRENT.get();
+            CURRENT.set(deadline);
+            try {
+                return task.call();
+            } finally {
+                CURRENT.set(previous);
+            }
+        };
+    }
+
+    static void check() {
+        Deadline deadline = CURRENT.get();
+        if (deadline != NONE && ++deadline.checks % CHECK_INTERVAL == 0 && System.nanoTime() - deadline.expiresAt > 0) {
+            throw new ExceededException(deadline.budget);
+        }
+    }
+
+    /**
+     * A token stream checking the deadline on every lookahead, which is what the adaptive prediction of the parser
+     * spins on when it backtracks.
+     */
+    static CommonTokenStream checkedTokenStream(TokenSource tokenSource) {
+        return new CommonTokenStream(tokenSource) {
+            @Override
+            public int LA(int i) {
+                check();
+                return super.LA(i);
+            }
+        };
+    }
+}
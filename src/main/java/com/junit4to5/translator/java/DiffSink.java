@@ -0,0 +1,30 @@
+package com.junit4to5.translator.java;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+
+/**
+ * Writes a unified diff per translated file instead of the files themselves.
+ */
+final class DiffSink implements OutputSink {
+    private final Writer out;
+
+    DiffSink(OutputStream out) {
+        this.out = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public void write(Path inputPath, Path outputPath, Rewriter rewriter) throws IOException {
+        rewriter.writeDiff(inputPath.toString(), outputPath.toString(), out);
+    }
+
+    @Override
+    public void close() throws IOException {
+        out.flush();
+    }
+}
@@ -0,0 +1,69 @@
+package com.junit4to5.translator.java;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Document to lay out within a line width, in the style of Wadler's prettier printer: a {@link Group} is printed
+ * flat when it fits in the rest of the line, otherwise each {@link Line} directly inside it becomes a line break
+ * followed by the current indentation. See {@link DocLayout}.
+ */
+sealed interface Doc {
+    Doc EMPTY = new Text("");
+
+    record Text(String text) implements Doc {}
+
+    /**
+     * Printed as {@code flat} in a flat group and as a line break otherwise.
+     */
+    record Line(String flat) implements Doc {}
+
+    record HardLine() implements Doc {}
+
+    record Nest(int indentation, Doc doc) implements Doc {}
+
+    record Group(Doc doc) implements Doc {}
+
+    /**
+     * Printed as {@code flat} in a flat group and as {@code broken} otherwise.
+     */
+    record Choice(Doc flat, Doc broken) implements Doc {}
+
+    record Concat(List<Doc> docs) implements Doc {}
+
+    static Doc text(String text) {
+        return new Text(text);
+    }
+
+    static Doc line() {
+        return new Line(" ");
+    }
+
+    static Doc softLine() {
+        return new Line("");
+    }
+
+    static Doc hardLine() {
+        return new HardLine();
+    }
+
+    static Doc nest(int indentation, Doc doc) {
+        return new Nest(indentation, doc);
+    }
+
+    static Doc group(Doc doc) {
+        return new Group(doc);
+    }
+
+    static Doc choice(Doc flat, Doc broken) {
+        return new Choice(flat, broken);
+    }
+
+    static Doc concat(Doc... docs) {
+        return new Concat(Arrays.asList(docs));
+    }
+
+    static Doc concat(List<Doc> docs) {
+        return new Concat(docs);
+    }
+}
@@ -0,0 +1,313 @@
+package com.junit4to5.translator.java;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
+
+import org.antlr.v4.runtime.BailErrorStrategy;
+import org.antlr.v4.runtime.BaseErrorListener;
+import org.antlr.v4.runtime.CharStreams;
+import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.ParserRuleContext;
+import org.antlr.v4.runtime.RecognitionException;
+import org.antlr.v4.runtime.Recognizer;
+import org.antlr.v4.runtime.Token;
+import org.antlr.v4.runtime.misc.Interval;
+import org.antlr.v4.runtime.misc.ParseCancellationException;
+import org.antlr.v4.runtime.tree.ParseTree;
+import org.antlr.v4.runtime.tree.RuleNode;
+import org.antlr.v4.runtime.tree.TerminalNode;
+
+import antlr.java.JavaLexer;
+import antlr.java.JavaParser;
+import antlr.java.JavaParserBaseVisitor;
+
+/**
+ * Builds the {@link Doc} of a piece of code from its parse tree. Whitespace between tokens is collapsed to a single
+ * space, and line breaks are only offered around arguments, formal parameters, method chains, ternaries and
+ * {@code &&}, {@code ||} and {@code +} operands. Blocks keep one statement per line.
+ */
+final class DocBuilder extends JavaParserBaseVisitor<Doc> {
+    private static final Set<String> BREAKABLE_OPERATORS = Set.of("&&", "||", "+");
+
+    private final CommonTokenStream tokens;
+
+    private DocBuilder(CommonTokenStream tokens) {
+        this.tokens = tokens;
+    }
+
+    /**
+     * Parses the text with the given rule and builds its document, unless the text does not match the rule
+     * entirely or holds comments, which would not survive collapsing whitespace.
+     */
+    static Optional<Doc> build(String text, Function<JavaParser, ? extends ParserRuleContext> rule) {
+        var lexer = new JavaLexer(CharStreams.fromString(text));
+        lexer.removeErrorListeners();
+        lexer.addErrorListener(new BaseErrorListener() {
+            @Override
+            public void syntaxError(
+                Recognizer<?, ?> recognizer,
+                Object offendingSymbol,
+                int line,
+                int charPositionInLine,
+                String msg,
+                RecognitionException e
+            ) {
+                throw new ParseCancellationException(msg);
+            }
+        });
+        var tokens = new CommonTokenStream(lexer);
+        var parser = new JavaParser(tokens);
+        parser.removeErrorListeners();
+        parser.setErrorHandler(new BailErrorStrategy());
+        try {
+            ParserRuleContext ctx = rule.apply(parser);
+            if (parser.getCurrentToken().getType() != Token.EOF || hasComments(tokens)) {
+                return Optional.empty();
+            }
+            return Optional.of(new DocBuilder(tokens).visit(ctx));
+        } catch (ParseCancellationException e) {
+            return Optional.empty();
+        }
+    }
+
+    private static boolean hasComments(CommonTokenStream tokens) {
+        return tokens.getTokens().stream()
+            .anyMatch(t -> t.getType() == JavaLexer.COMMENT || t.getType() == JavaLexer.LINE_COMMENT);
+    }
+
+    @Override
+    public Doc visitChildren(RuleNode node) {
+        List<ParseTree> children = new ArrayList<>();
+        for (int i = 0; i < node.getChildCount(); i++) {
+            children.add(node.getChild(i));
+        }
+        return spaced(children);
+    }
+
+    @Override
+    public Doc visitTerminal(TerminalNode node) {
+        return Doc.text(node.getText());
+    }
+
+    @Override
+    public Doc visitClassBody(JavaParser.ClassBodyContext ctx) {
+        return original(ctx);
+    }
+
+    @Override
+    public Doc visitSwitchExpression(JavaParser.SwitchExpressionContext ctx) {
+        return original(ctx);
+    }
+
+    @Override
+    public Doc visitStatement(JavaParser.StatementContext ctx) {
+        if (ctx.SWITCH() != null) {
+            return original(ctx);
+        }
+        return super.visitStatement(ctx);
+    }
+
+    @Override
+    public Doc visitArrayInitializer(JavaParser.ArrayInitializerContext ctx) {
+        if (tokens.getText(ctx.getSourceInterval()).contains("\n")) {
+            return original(ctx);
+        }
+        return super.visitArrayInitializer(ctx);
+    }
+
+    @Override
+    public Doc visitBlock(JavaParser.BlockContext ctx) {
+        if (ctx.blockStatement().isEmpty()) {
+            return original(ctx);
+        }
+        List<Doc> statements = new ArrayList<>();
+        Token previous = ctx.LBRACE().getSymbol();
+        for (JavaParser.BlockStatementContext blockStatement : ctx.blockStatement()) {
+            if (previous != ctx.LBRACE().getSymbol() && isBlankLineBetween(previous, blockStatement.getStart())) {
+                statements.add(Doc.text("\n"));
+            }
+            statements.add(Doc.hardLine());
+            statements.add(visit(blockStatement));
+            previous = blockStatement.getStop();
+        }
+        return Doc.concat(
+            Doc.text("{"),
+            Doc.nest(JUnit4to5TranslatorFormattingPass.INDENTATION_LEVEL, Doc.concat(statements)),
+            Doc.hardLine(),
+            Doc.text("}"));
+    }
+
+    private boolean isBlankLineBetween(Token previous, Token next) {
+        String between = tokens.getText(new Interval(previous.getTokenIndex() + 1, next.getTokenIndex() - 1));
+        int firstBreak = between.indexOf('\n');
+        return firstBreak != -1 && between.indexOf('\n', firstBreak + 1) != -1;
+    }
+
+    @Override
+    public Doc visitArguments(JavaParser.ArgumentsContext ctx) {
+        if (ctx.expressionList() == null) {
+            return Doc.text("()");
+        }
+        List<JavaParser.ExpressionContext> expressions = ctx.expressionList().expression();
+        List<Doc> arguments = new ArrayList<>();
+        for (JavaParser.ExpressionContext expression : expressions) {
+            arguments.add(arguments.isEmpty() ? Doc.softLine() : Doc.concat(Doc.text(","), Doc.line()));
+            arguments.add(visit(expression));
+        }
+        Doc broken = Doc.concat(
+            Doc.text("("),
+            Doc.nest(JUnit4to5TranslatorFormattingPass.INDENTATION_LEVEL, Doc.concat(arguments)),
+            Doc.text(")"));
+        if (!isBlockLambda(expressions.get(expressions.size() - 1))) {
+            return Doc.group(broken);
+        }
+        // on the line of the call, the body of a trailing block lambda is indented from the statement, not the call
+        List<Doc> leading = arguments.subList(0, arguments.size() - 2);
+        Doc flat = Doc.concat(
+            Doc.text("("),
+            Doc.nest(JUnit4to5TranslatorFormattingPass.INDENTATION_LEVEL, Doc.concat(leading)),
+            Doc.text(leading.isEmpty() ? "" : ", "),
+            arguments.get(arguments.size() - 1),
+            Doc.text(")"));
+        return Doc.group(Doc.choice(flat, broken));
+    }
+
+    private boolean isBlockLambda(JavaParser.ExpressionContext expression) {
+        return expression.lambdaExpression() != null && expression.lambdaExpression().lambdaBody().block() != null;
+    }
+
+    @Override
+    public Doc visitFormalParameters(JavaParser.FormalParametersContext ctx) {
+        List<ParserRuleContext> parameters = new ArrayList<>();
+        Optional.ofNullable(ctx.receiverParameter())
+            .ifPresent(parameters::add);
+        Optional.ofNullable(ctx.formalParameterList())
+            .ifPresent(list -> {
+                parameters.addAll(list.formalParameter());
+                Optional.ofNullable(list.lastFormalParameter())
+                    .ifPresent(parameters::add);
+            });
+        if (parameters.isEmpty()) {
+            return Doc.text("()");
+        }
+        List<Doc> docs = new ArrayList<>();
+        for (ParserRuleContext parameter : parameters) {
+            docs.add(docs.isEmpty() ? Doc.softLine() : Doc.concat(Doc.text(","), Doc.line()));
+            docs.add(visit(parameter));
+        }
+        return Doc.group(Doc.concat(
+            Doc.text("("),
+            Doc.nest(JUnit4to5TranslatorFormattingPass.INDENTATION_LEVEL, Doc.concat(docs)),
+            Doc.softLine(),
+            Doc.text(")")));
+    }
+
+    @Override
+    public Doc visitExpression(JavaParser.ExpressionContext ctx) {
+        if (ctx.bop == null) {
+            return super.visitExpression(ctx);
+        } else if (ctx.bop.getType() == JavaLexer.DOT) {
+            return chain(ctx);
+        } else if (ctx.bop.getType() == JavaLexer.QUESTION) {
+            return Doc.group(Doc.concat(
+                visit(ctx.expression(0)),
+                Doc.text(" ?"),
+                Doc.nest(JUnit4to5TranslatorFormattingPass.INDENTATION_LEVEL, Doc.concat(
+                    Doc.line(),
+                    visit(ctx.expression(1)),
+                    Doc.text(" :"),
+                    Doc.line(),
+                    visit(ctx.expression(2))))));
+        } else if (BREAKABLE_OPERATORS.contains(ctx.bop.getText())) {
+            return operands(ctx);
+        }
+        return super.visitExpression(ctx);
+    }
+
+    /**
+     * Method chain broken before each dot following its head, the receiver with the leading field accesses and,
+     * when the receiver is not a call itself, the first call.
+     */
+    private Doc chain(JavaParser.ExpressionContext ctx) {
+        Deque<JavaParser.ExpressionContext> links = new ArrayDeque<>();
+        JavaParser.ExpressionContext receiver = ctx;
+        while (receiver.bop != null && receiver.bop.getType() == JavaLexer.DOT) {
+            links.push(receiver);
+            receiver = receiver.expression(0);
+        }
+        List<Doc> head = new ArrayList<>(List.of(visit(receiver)));
+        boolean headHasCall = receiver.methodCall() != null;
+        while (!links.isEmpty() && (!isCall(links.peek()) || !headHasCall)) {
+            headHasCall |= isCall(links.peek());
+            head.add(link(links.pop()));
+        }
+        if (links.stream().noneMatch(this::isCall)) {
+            links.forEach(link -> head.add(link(link)));
+            return Doc.concat(head);
+        }
+        List<Doc> rest = new ArrayList<>();
+        for (JavaParser.ExpressionContext link : links) {
+            rest.add(Doc.softLine());
+            rest.add(link(link));
+        }
+        return Doc.group(Doc.concat(
+            Doc.concat(head),
+            Doc.nest(JUnit4to5TranslatorFormattingPass.INDENTATION_LEVEL, Doc.concat(rest))));
+    }
+
+    private boolean isCall(JavaParser.ExpressionContext link) {
+        return link.methodCall() != null || link.innerCreator() != null || link.explicitGenericInvocation() != null;
+    }
+
+    private Doc link(JavaParser.ExpressionContext link) {
+        return spaced(link.children.subList(1, link.getChildCount()));
+    }
+
+    private Doc operands(JavaParser.ExpressionContext ctx) {
+        String operator = ctx.bop.getText();
+        Deque<JavaParser.ExpressionContext> operands = new ArrayDeque<>();
+        JavaParser.ExpressionContext left = ctx;
+        while (left.bop != null && left.bop.getText().equals(operator) && left.expression().size() == 2) {
+            operands.push(left.expression(1));
+            left = left.expression(0);
+        }
+        List<Doc> rest = new ArrayList<>();
+        for (JavaParser.ExpressionContext operand : operands) {
+            rest.add(Doc.text(" " + operator));
+            rest.add(Doc.line());
+            rest.add(visit(operand));
+        }
+        return Doc.group(Doc.concat(
+            visit(left),
+            Doc.nest(JUnit4to5TranslatorFormattingPass.INDENTATION_LEVEL, Doc.concat(rest))));
+    }
+
+    /**
+     * Concatenates the children, separated by a space wherever hidden tokens separate them.
+     */
+    private Doc spaced(List<ParseTree> children) {
+        List<Doc> docs = new ArrayList<>();
+        int previousStop = -1;
+        for (ParseTree child : children) {
+            Interval interval = child.getSourceInterval();
+            if (interval.length() == 0) {
+                continue;
+            }
+            if (previousStop != -1 && interval.a > previousStop + 1) {
+                docs.add(Doc.text(" "));
+            }
+            docs.add(visit(child));
+            previousStop = interval.b;
+        }
+        return docs.size() == 1 ? docs.get(0) : Doc.concat(docs);
+    }
+
+    private Doc original(ParserRuleContext ctx) {
+        return Doc.text(tokens.getText(ctx.getSourceInterval()));
+    }
+}
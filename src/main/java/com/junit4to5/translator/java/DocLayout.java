@@ -0,0 +1,104 @@
+package com.junit4to5.translator.java;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+
+/**
+ * Lays a {@link Doc} out in a single pass. Deciding whether a group is printed flat only looks ahead until the end
+ * of the current line, so the work stays linear in the document size for a given width.
+ */
+final class DocLayout {
+    private record Frame(int indentation, boolean flat, Doc doc) {}
+
+    private DocLayout() {
+    }
+
+    /**
+     * Lays the document out starting at the given column, breaking lines at the given indentation plus the
+     * indentation of the enclosing nests.
+     */
+    static String layout(Doc doc, int width, int column, int indentation) {
+        StringBuilder sb = new StringBuilder();
+        Deque<Frame> frames = new ArrayDeque<>();
+        frames.push(new Frame(indentation, false, doc));
+        int currentColumn = column;
+        while (!frames.isEmpty()) {
+            Frame frame = frames.pop();
+            if (frame.doc() instanceof Doc.Text t) {
+                sb.append(t.text());
+                int lastBreak = t.text().lastIndexOf('\n');
+                currentColumn = lastBreak == -1 ?
+                    currentColumn + t.text().length() :
+                    t.text().length() - lastBreak - 1;
+            } else if (frame.doc() instanceof Doc.Line l && frame.flat()) {
+                sb.append(l.flat());
+                currentColumn += l.flat().length();
+            } else if (frame.doc() instanceof Doc.Line || frame.doc() instanceof Doc.HardLine) {
+                sb.append('\n').append(" ".repeat(frame.indentation()));
+                currentColumn = frame.indentation();
+            } else if (frame.doc() instanceof Doc.Nest n) {
+                frames.push(new Frame(frame.indentation() + n.indentation(), frame.flat(), n.doc()));
+            } else if (frame.doc() instanceof Doc.Group g) {
+                Frame flat = new Frame(frame.indentation(), true, g.doc());
+                // decided again even inside a flat group, as a hard line in it starts a new line to fit
+                frames.push(fits(width - currentColumn, flat, frames) ?
+                    flat :
+                    new Frame(frame.indentation(), false, g.doc()));
+            } else if (frame.doc() instanceof Doc.Choice c) {
+                frames.push(new Frame(frame.indentation(), frame.flat(), frame.flat() ? c.flat() : c.broken()));
+            } else if (frame.doc() instanceof Doc.Concat c) {
+                pushAll(frames, frame, c);
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Tells whether the first frame, followed by the pending ones, reaches the end of its line within the width.
+     */
+    private static boolean fits(int width, Frame first, Deque<Frame> pending) {
+        int remaining = width;
+        Deque<Frame> frames = new ArrayDeque<>();
+        frames.push(first);
+        Iterator<Frame> rest = pending.iterator();
+        while (remaining >= 0) {
+            if (frames.isEmpty()) {
+                if (!rest.hasNext()) {
+                    return true;
+                }
+                frames.push(rest.next());
+            }
+            Frame frame = frames.pop();
+            if (frame.doc() instanceof Doc.Text t) {
+                int firstBreak = t.text().indexOf('\n');
+                if (firstBreak != -1) {
+                    return firstBreak <= remaining;
+                }
+                remaining -= t.text().length();
+            } else if (frame.doc() instanceof Doc.Line l) {
+                if (!frame.flat()) {
+                    return true;
+                }
+                remaining -= l.flat().length();
+            } else if (frame.doc() instanceof Doc.HardLine) {
+                return true;
+            } else if (frame.doc() instanceof Doc.Nest n) {
+                frames.push(new Frame(frame.indentation(), frame.flat(), n.doc()));
+            } else if (frame.doc() instanceof Doc.Group g) {
+                frames.push(new Frame(frame.indentation(), frame.flat(), g.doc()));
+            } else if (frame.doc() instanceof Doc.Choice c) {
+                frames.push(new Frame(frame.indentation(), frame.flat(), frame.flat() ? c.flat() : c.broken()));
+            } else if (frame.doc() instanceof Doc.Concat c) {
+                pushAll(frames, frame, c);
+            }
+        }
+        return false;
+    }
+
+    private static void pushAll(Deque<Frame> frames, Frame frame, Doc.Concat concat) {
+        for (int i = concat.docs().size() - 1; i >= 0; i--) {
+            frames.push(new Frame(frame.indentation(), frame.flat(), concat.docs().get(i)));
+        }
+    }
+}
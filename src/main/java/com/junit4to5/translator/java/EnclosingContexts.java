@@ -0,0 +1,65 @@
+package com.junit4to5.translator.java;
+
+import java.util.Arrays;
+
+import org.antlr.v4.runtime.ParserRuleContext;
+import org.antlr.v4.runtime.tree.ErrorNode;
+import org.antlr.v4.runtime.tree.ParseTreeListener;
+import org.antlr.v4.runtime.tree.TerminalNode;
+
+/**
+ * Parse tree leaves indexed by token index while parsing, to find the rules enclosing a token without walking the
+ * tree. Hidden tokens have no leaf.
+ */
+final class EnclosingContexts implements ParseTreeListener {
+    private TerminalNode[] terminals = new TerminalNode[1024];
+    private int size;
+
+    @Override
+    public void visitTerminal(TerminalNode node) {
+        int tokenIndex = node.getSymbol().getTokenIndex();
+        if (tokenIndex < 0) {
+            return;
+        }
+        if (tokenIndex >= terminals.length) {
+            terminals = Arrays.copyOf(terminals, Math.max(2 * terminals.length, tokenIndex + 1));
+        }
+        terminals[tokenIndex] = node;
+        size = Math.max(size, tokenIndex + 1);
+    }
+
+    @Override
+    public void visitErrorNode(ErrorNode node) {
+        visitTerminal(node);
+    }
+
+    @Override
+    public void enterEveryRule(ParserRuleContext ctx) {
+    }
+
+    @Override
+    public void exitEveryRule(ParserRuleContext ctx) {
+    }
+
+    /**
+     * The rule holding the token at the given index, or null for hidden tokens.
+     */
+    public ParserRuleContext at(int tokenIndex) {
+        if (tokenIndex < 0 || tokenIndex >= size || terminals[tokenIndex] == null) {
+            return null;
+        }
+        return (ParserRuleContext) terminals[tokenIndex].getParent();
+    }
+
+    /**
+     * The rule holding the first token on the default channel at or after the given index, if any.
+     */
+    public ParserRuleContext atOrAfter(int tokenIndex) {
+        for (int i = Math.max(tokenIndex, 0); i < size; i++) {
+            if (terminals[i] != null) {
+                return (ParserRuleContext) terminals[i].getParent();
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,125 @@
+package com.junit4to5.translator.java;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Estimated and actual costs of the files of a run, to start the costliest files first when translating on several
+ * threads, so that no huge file started last keeps one thread busy long after the others are done. A file is
+ * estimated by the time it took when a previous run logged it in the journal, otherwise by its token count as given
+ * by the classifier, or else by its size. Past timings are turned into tokens at the rate the timed files went
+ * through, so that all estimates rank together.
+ */
+final class FileCosts {
+    private static final long BYTES_PER_TOKEN = 4;
+
+    private final Map<String, Estimate> estimates;
+    private final Map<String, Long> actualNanos;
+
+    private enum Basis {
+        JOURNAL("journal"), CLASSIFIER("classifier"), SIZE("file size");
+
+        private final String label;
+
+        Basis(String label) {
+            this.label = label;
+        }
+    }
+
+    private record Estimate(long tokens, Basis basis) {
+    }
+
+    private FileCosts(Map<String, Estimate> estimates) {
+        this.estimates = estimates;
+        actualNanos = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * @param classifiedTokens the token counts of the files the classifier gave
+     */
+    static FileCosts estimate(List<String> inputFiles, Map<String, Long> classifiedTokens, Journal journal) {
+        Map<String, Estimate> estimates = new HashMap<>();
+        long timedTokens = 0;
+        long timedMillis = 0;
+        for (String inputFile : inputFiles) {
+            Long tokens = classifiedTokens.get(inputFile);
+            Estimate estimate = tokens != null ?
+                new Estimate(tokens, Basis.CLASSIFIER) :
+                new Estimate(size(inputFile) / BYTES_PER_TOKEN, Basis.SIZE);
+            estimates.put(inputFile, estimate);
+            OptionalLong maybePastMillis = journal.maybePastMillis(inputFile);
+            if (maybePastMillis.isPresent()) {
+                timedTokens += estimate.tokens();
+                timedMillis += maybePastMillis.getAsLong();
+            }
+        }
+        if (timedMillis > 0) {
+            double tokensPerMilli = (double) timedTokens / timedMillis;
+            for (String inputFile : inputFiles) {
+                journal.maybePastMillis(inputFile).ifPresent(pastMillis -> estimates.put(
+                    inputFile,
+                    new Estimate(Math.round(pastMillis * tokensPerMilli), Basis.JOURNAL)));
+            }
+        }
+        return new FileCosts(estimates);
+    }
+
+    private static long size(String inputFile) {
+        try {
+            return Files.size(Path.of(inputFile));
+        } catch (IOException e) {
+            // the file is reported by the step reading it
+            return 0;
+        }
+    }
+
+    /**
+     * The files sorted by decreasing estimated cost, files of the same cost keeping their order.
+     */
+    public List<String> costliestFirst(List<String> inputFiles) {
+        return inputFiles.stream()
+            .sorted(Comparator.comparingLong((String inputFile) -> estimates.get(inputFile).tokens()).reversed())
+            .toList();
+    }
+
+    /**
+     * Adds the time a step of the file took to its actual cost, from whichever thread ran the step.
+     */
+    public void spent(String inputFile, long nanos) {
+        actualNanos.merge(inputFile, nanos, Long::sum);
+    }
+
+    public Duration actual(String inputFile) {
+        return Duration.ofNanos(actualNanos.getOrDefault(inputFile, 0L));
+    }
+
+    /**
+     * Prints the estimated and actual cost of every file this run went through, the costliest first.
+     */
+    public void report(PrintStream out) {
+        if (actualNanos.isEmpty()) {
+            return;
+        }
+        out.println("Cost of the files (actual, estimated):");
+        actualNanos.entrySet().stream()
+            .sorted(Map.Entry.<String, Long>comparingByValue().reversed().thenComparing(Map.Entry.comparingByKey()))
+            .forEach(fileAndNanos -> {
+                Estimate estimate = estimates.get(fileAndNanos.getKey());
+                out.printf(
+                    "  %9.3fs %10d tokens by %-10s  %s%n",
+                    fileAndNanos.getValue() / 1e9,
+                    estimate.tokens(),
+                    estimate.basis().label,
+                    fileAndNanos.getKey());
+            });
+    }
+}
@@ -0,0 +1,51 @@
+package com.junit4to5.translator.java;
+
+import java.util.List;
+
+import antlr.java.JavaParser;
+
+/**
+ * What a JUnit4 file involves beyond the import and annotation swaps of the first pass, read from its tokens and
+ * from the metadata table. Only files involving TestName, directly, through an inherited rule or through TestInfo
+ * usage methods and constructors, need the TestInfo propagation of the recursive finder and of the second pass.
+ */
+record FileFeatures(String fullyQualifiedName, boolean usesTestName, boolean hasTestInfoDependencies) {
+    private static final FileFeatures ALL = new FileFeatures(null, true, true);
+
+    static FileFeatures of(
+        JavaParser.CompilationUnitContext ctx,
+        TokenIndex tokenIndex,
+        MetadataTable metadataTable
+    ) {
+        String fullyQualifiedName = fullyQualifiedName(ctx);
+        if (fullyQualifiedName == null) {
+            // the passes may name the file after a class nested in its first type, assume it needs everything
+            return ALL;
+        }
+        boolean inheritsTestNameRule = metadataTable.getBase(fullyQualifiedName)
+            .filter(base -> base.getInstanceVariables().containsValue(BaseJUnit4To5Pass.TEST_NAME_RULE))
+            .isPresent();
+        return new FileFeatures(
+            fullyQualifiedName,
+            inheritsTestNameRule || tokenIndex.mentionsAny(ctx, List.of("TestName")),
+            !metadataTable.testInfoUsageNames(fullyQualifiedName).isEmpty());
+    }
+
+    /**
+     * The name the passes give to the file, its package followed by its first class when that class is at the top
+     * level, or null otherwise.
+     */
+    private static String fullyQualifiedName(JavaParser.CompilationUnitContext ctx) {
+        if (ctx.typeDeclaration().isEmpty() || ctx.typeDeclaration(0).classDeclaration() == null) {
+            return null;
+        }
+        String packageDeclaration = ctx.packageDeclaration() != null ?
+            ctx.packageDeclaration().qualifiedName().getText() :
+            null;
+        return "%s.%s".formatted(packageDeclaration, ctx.typeDeclaration(0).classDeclaration().identifier().getText());
+    }
+
+    public boolean needsTestInfoPropagation() {
+        return usesTestName || hasTestInfoDependencies;
+    }
+}
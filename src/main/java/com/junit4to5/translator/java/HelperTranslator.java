@@ -1,40 +1,58 @@
 package com.junit4to5.translator.java;
 
-import java.util.List;
-
 import antlr.java.JavaParser;
-import antlr.java.JavaParserBaseVisitor;
-
-class HelperTranslator extends JavaParserBaseVisitor<Void> {
-    private static final List<String> IMPORTS_FOR_REMOVAL = List.of(
-        "com.tngtech.java.junit.dataprovider.DataProvider");
 
+/**
+ * Translates the helper files, which only go through the helper import and annotation rules, by default losing the
+ * DataProvider import and annotations. Both are reached straight from the import declarations and from the annotation
+ * signs of the token index, without walking the parse tree.
+ */
+class HelperTranslator {
     private final Rewriter rewriter;
+    private final Imports imports;
+    private final TranslationRules rules;
+    private final TokenIndex tokenIndex;
+    private final EnclosingContexts enclosingContexts;
 
-    HelperTranslator(Rewriter rewriter) {
+    HelperTranslator(
+        Rewriter rewriter,
+        Imports imports,
+        TranslationRules rules,
+        TokenIndex tokenIndex,
+        EnclosingContexts enclosingContexts
+    ) {
         this.rewriter = rewriter;
+        this.imports = imports;
+        this.rules = rules;
+        this.tokenIndex = tokenIndex;
+        this.enclosingContexts = enclosingContexts;
     }
 
-    @Override
-    public Void visitImportDeclaration(JavaParser.ImportDeclarationContext ctx) {
-        boolean wildcardImport = ctx.DOT() != null && ctx.MUL() != null;
-        String importName = wildcardImport ?
-            ctx.qualifiedName().getText() + ".*" :
-            ctx.qualifiedName().getText();
-        if (IMPORTS_FOR_REMOVAL.contains(importName)) {
-            rewriter.delete(ctx.start, ctx.stop);
-            rewriter.deleteNextIf(ctx.stop, "\n", hiddenToken -> hiddenToken.substring(1));
+    public void translate(JavaParser.CompilationUnitContext ctx) {
+        for (JavaParser.ImportDeclarationContext importDeclaration : ctx.importDeclaration()) {
+            rules.maybeHelperImportRule(Imports.Import.of(importDeclaration).name())
+                .ifPresent(rule -> rule.maybeReplacement()
+                    .ifPresentOrElse(
+                        replacement -> imports.replace(importDeclaration, replacement),
+                        () -> imports.remove(importDeclaration)));
         }
-        return super.visitImportDeclaration(ctx);
+        tokenIndex.forEachPosition(TokenIndex.ANNOTATION, index -> {
+            // the sign of an annotation type declaration or of an annotation written after its qualifier has
+            // another parent
+            if (enclosingContexts.at(index) instanceof JavaParser.AnnotationContext annotation) {
+                translateAnnotation(annotation);
+            }
+        });
     }
 
-    @Override
-    public Void visitAnnotation(JavaParser.AnnotationContext ctx) {
-        String annotationName = ctx.qualifiedName().getText();
-        if ("DataProvider".equals(annotationName)) {
-            rewriter.replace(ctx.start, ctx.stop, "");
-            rewriter.deleteNextIf(ctx.stop, "\n");
-        }
-        return super.visitAnnotation(ctx);
+    private void translateAnnotation(JavaParser.AnnotationContext ctx) {
+        rules.maybeHelperAnnotationRule(ctx.qualifiedName().getText())
+            .map(TranslationRules.AnnotationRule::replacement)
+            .ifPresent(replacement -> {
+                rewriter.replace(ctx.start, ctx.stop, replacement);
+                if (replacement.isBlank()) {
+                    rewriter.deleteNextIf(ctx.stop, "\n");
+                }
+            });
     }
 }
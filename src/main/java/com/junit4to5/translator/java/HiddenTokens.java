@@ -1,8 +1,6 @@
 package com.junit4to5.translator.java;
 
-import java.util.List;
 import java.util.Optional;
-import java.util.stream.Collectors;
 
 import org.antlr.v4.runtime.BufferedTokenStream;
 import org.antlr.v4.runtime.Token;
@@ -10,57 +8,104 @@ import org.antlr.v4.runtime.misc.Interval;
 
 import antlr.java.JavaLexer;
 
+/**
+ * Queries over the hidden tokens around each token, answered from arrays indexed by token index and computed once
+ * per file, so none of them walks or copies the token stream.
+ */
 class HiddenTokens {
+    private static final int NONE = -1;
+
     private final BufferedTokenStream tokens;
+    private final int[] previousNewLines;
+    private final int[] indentations;
+    private final int[] trailingLengths;
 
     HiddenTokens(BufferedTokenStream tokens) {
         this.tokens = tokens;
+        tokens.fill();
+        int size = tokens.size();
+        previousNewLines = new int[size];
+        indentations = new int[size];
+        trailingLengths = new int[size];
+
+        // the first hidden token holding a line break since the last token on the default channel
+        int previousNewLine = NONE;
+        for (int i = 0; i < size; i++) {
+            previousNewLines[i] = previousNewLine;
+            indentations[i] = previousNewLine == NONE ? NONE : indentationAfter(tokens.get(previousNewLine));
+            Token token = tokens.get(i);
+            if (!isHidden(token)) {
+                previousNewLine = NONE;
+            } else if (previousNewLine == NONE && token.getText().indexOf('\n') != -1) {
+                previousNewLine = i;
+            }
+        }
+
+        // the length of the hidden text starting at a token and ending before its first line break
+        int lengthUntilNewLine = 0;
+        for (int i = size - 1; i > 0; i--) {
+            Token token = tokens.get(i);
+            lengthUntilNewLine = isHidden(token) && token.getText().indexOf('\n') == -1 ?
+                token.getText().length() + lengthUntilNewLine :
+                0;
+            trailingLengths[i - 1] = lengthUntilNewLine;
+        }
     }
 
-    public Integer getIndentation(Token token) {
-        return maybeIndentation(token)
-            .orElseThrow(() -> new IllegalStateException("No indentation detected before: " + token));
+    private static boolean isHidden(Token token) {
+        return token.getChannel() == JavaLexer.HIDDEN;
     }
 
-    public Optional<Integer> maybeIndentation(Token token) {
-        return maybePreviousAs(token, "\n")
-            .map(Token::getText)
-            .map(hiddenToken -> hiddenToken.length() - hiddenToken.lastIndexOf('\n') - 1);
+    private static int indentationAfter(Token hiddenToken) {
+        String text = hiddenToken.getText();
+        return text.length() - text.lastIndexOf('\n') - 1;
     }
 
-    public Optional<Token> maybePreviousAs(Token token, String previous) {
-        List<Token> hiddenTokensToLeft = tokens.getHiddenTokensToLeft(
-            token.getTokenIndex(), JavaLexer.HIDDEN);
-        if (hiddenTokensToLeft != null && !hiddenTokensToLeft.isEmpty()) {
-            return hiddenTokensToLeft.stream()
-                .filter(hiddenToken -> hiddenToken.getText().contains(previous))
-                .findFirst();
+    public int getIndentation(Token token) {
+        int indentation = indentations[token.getTokenIndex()];
+        if (indentation == NONE) {
+            throw new IllegalStateException("No indentation detected before: " + token);
         }
-        return Optional.empty();
+        return indentation;
+    }
+
+    public Optional<Integer> maybeIndentation(Token token) {
+        int indentation = indentations[token.getTokenIndex()];
+        return indentation != NONE ? Optional.of(indentation) : Optional.empty();
+    }
+
+    /**
+     * The indentation before the token, or the given value when the token does not start a line.
+     */
+    public int getIndentationOr(Token token, int otherwise) {
+        int indentation = indentations[token.getTokenIndex()];
+        return indentation != NONE ? indentation : otherwise;
+    }
+
+    /**
+     * The first hidden token holding a line break among those right before the token.
+     */
+    public Optional<Token> maybePreviousNewLine(Token token) {
+        int previousNewLine = previousNewLines[token.getTokenIndex()];
+        return previousNewLine != NONE ? Optional.of(tokens.get(previousNewLine)) : Optional.empty();
     }
 
     public Optional<Token> maybeNextAs(Token token, String next) {
-        List<Token> hiddenTokensToRight = tokens.getHiddenTokensToRight(
-            token.getTokenIndex(), JavaLexer.HIDDEN);
-        if (hiddenTokensToRight != null && !hiddenTokensToRight.isEmpty()) {
-            Token hiddenToken = hiddenTokensToRight.get(0);
-            if (hiddenToken.getText().startsWith(next)) {
+        int nextIndex = token.getTokenIndex() + 1;
+        if (nextIndex < tokens.size()) {
+            Token hiddenToken = tokens.get(nextIndex);
+            if (isHidden(hiddenToken) && hiddenToken.getText().startsWith(next)) {
                 return Optional.of(hiddenToken);
             }
         }
         return Optional.empty();
     }
-    
-    public String getHiddenTextUntilNewLine(int tokenIndex) {
-        List<Token> hiddenTokensToRight = tokens.getHiddenTokensToRight(
-            tokenIndex, JavaLexer.HIDDEN);
-        if (hiddenTokensToRight != null && !hiddenTokensToRight.isEmpty()) {
-            return hiddenTokensToRight.stream()
-                .takeWhile(hiddenToken -> !hiddenToken.getText().contains("\n"))
-                .map(Token::getText)
-                .collect(Collectors.joining());
-        }
-        return "";
+
+    /**
+     * The length of the hidden text right after the token and before the first hidden token holding a line break.
+     */
+    public int getHiddenTextLengthUntilNewLine(int tokenIndex) {
+        return trailingLengths[tokenIndex];
     }
 
     public String getText(Interval interval) {
@@ -0,0 +1,212 @@
+package com.junit4to5.translator.java;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+
+import org.antlr.v4.runtime.BufferedTokenStream;
+import org.antlr.v4.runtime.Token;
+
+import antlr.java.JavaLexer;
+import antlr.java.JavaParser;
+
+/**
+ * Import declarations of a file, built once from its compilation unit. Passes replace, remove and add imports by
+ * name, and the whole import block is rendered once as a single replacement: surviving imports keep their order
+ * and blank-line separated groups, duplicates are dropped, and added imports join the group of the first import
+ * sharing their two leading name segments, or a new group at the end.
+ */
+class Imports {
+    private static final Comparator<Import> ADDED_ORDER = Comparator.comparing(Import::isStatic)
+        .thenComparing(Import::name);
+
+    record Import(String name, boolean isStatic) {
+        static Import of(JavaParser.ImportDeclarationContext ctx) {
+            boolean wildcardImport = ctx.DOT() != null && ctx.MUL() != null;
+            return new Import(
+                wildcardImport ? ctx.qualifiedName().getText() + ".*" : ctx.qualifiedName().getText(),
+                ctx.STATIC() != null);
+        }
+
+        private String prefix() {
+            String[] parts = name.split("\\.", 3);
+            return parts.length < 3 ? name : parts[0] + "." + parts[1] + ".";
+        }
+
+        private String declaration() {
+            return isStatic ? "import static %s;".formatted(name) : "import %s;".formatted(name);
+        }
+    }
+
+    private record Entry(JavaParser.ImportDeclarationContext ctx, Import original, int group, String comments) {}
+
+    private final BufferedTokenStream tokens;
+    private final JavaParser.CompilationUnitContext compilationUnit;
+    private final List<Entry> entries;
+    private final Map<JavaParser.ImportDeclarationContext, Import> replacements;
+    private final Set<Import> additions;
+
+    public static Imports get(JavaParser.CompilationUnitContext ctx, BufferedTokenStream tokens) {
+        List<Entry> entries = new ArrayList<>();
+        int group = 0;
+        for (JavaParser.ImportDeclarationContext importDeclaration : ctx.importDeclaration()) {
+            List<Token> hidden = Optional.ofNullable(
+                    tokens.getHiddenTokensToLeft(importDeclaration.getStart().getTokenIndex(), JavaLexer.HIDDEN))
+                .orElseGet(List::of);
+            // comments before the first import are outside the block
+            String comments = entries.isEmpty() ? "" : hidden.stream()
+                .filter(t -> t.getType() != JavaLexer.WS)
+                .map(Token::getText)
+                .collect(Collectors.joining("\n"));
+            if (!entries.isEmpty() && isBlankLine(hidden)) {
+                group++;
+            }
+            entries.add(new Entry(importDeclaration, Import.of(importDeclaration), group, comments));
+        }
+        return new Imports(tokens, ctx, entries);
+    }
+
+    private static boolean isBlankLine(List<Token> hidden) {
+        return hidden.stream()
+            .filter(t -> t.getType() == JavaLexer.WS)
+            .map(Token::getText)
+            .anyMatch(text -> text.indexOf('\n') != text.lastIndexOf('\n'));
+    }
+
+    private Imports(
+        BufferedTokenStream tokens,
+        JavaParser.CompilationUnitContext compilationUnit,
+        List<Entry> entries
+    ) {
+        this.tokens = tokens;
+        this.compilationUnit = compilationUnit;
+        this.entries = entries;
+        replacements = new HashMap<>();
+        additions = new TreeSet<>(ADDED_ORDER);
+    }
+
+    public void replace(JavaParser.ImportDeclarationContext ctx, String name) {
+        replacements.put(ctx, new Import(name, ctx.STATIC() != null));
+    }
+
+    public void remove(JavaParser.ImportDeclarationContext ctx) {
+        replacements.put(ctx, null);
+    }
+
+    public void add(String name) {
+        additions.add(new Import(name, false));
+    }
+
+    public void addStatic(String name) {
+        additions.add(new Import(name, true));
+    }
+
+    /**
+     * Adds the imports the passes collected in the metadata of the class.
+     */
+    public void addCollected(MetadataTable.Metadata metadata) {
+        metadata.getAddedImports().forEach(this::add);
+        metadata.getStaticAddedImports().forEach(this::addStatic);
+    }
+
+    /**
+     * Renders the import block once all passes are done with it, leaving the file untouched when nothing changed.
+     */
+    public void render(Rewriter rewriter) {
+        Map<Integer, List<String>> groups = new LinkedHashMap<>();
+        Set<Import> imported = new HashSet<>();
+        Map<Import, Integer> groupPerPrefix = new HashMap<>();
+        List<String> pendingComments = new ArrayList<>();
+        boolean changed = false;
+        for (Entry entry : entries) {
+            if (!entry.comments().isEmpty()) {
+                pendingComments.add(entry.comments());
+            }
+            Import anImport = replacements.containsKey(entry.ctx()) ?
+                replacements.get(entry.ctx()) :
+                entry.original();
+            changed |= !entry.original().equals(anImport);
+            if (anImport == null || !imported.add(anImport)) {
+                changed = true;
+                continue;
+            }
+            List<String> lines = groups.computeIfAbsent(entry.group(), __ -> new ArrayList<>());
+            lines.addAll(pendingComments);
+            pendingComments.clear();
+            lines.add(anImport.declaration());
+            groupPerPrefix.putIfAbsent(prefixKey(anImport), entry.group());
+        }
+
+        Map<Import, List<String>> newGroups = new LinkedHashMap<>();
+        for (Import addition : additions) {
+            if (!imported.add(addition)) {
+                continue;
+            }
+            changed = true;
+            Integer group = groupPerPrefix.get(prefixKey(addition));
+            if (group != null) {
+                insertAfterPrefix(groups.get(group), addition);
+            } else {
+                newGroups.computeIfAbsent(prefixKey(addition), __ -> new ArrayList<>())
+                    .add(addition.declaration());
+            }
+        }
+        if (!changed) {
+            return;
+        }
+
+        List<List<String>> rendered = new ArrayList<>(groups.values());
+        rendered.addAll(newGroups.values());
+        if (!pendingComments.isEmpty()) {
+            rendered.add(pendingComments);
+        }
+        String importBlock = rendered.stream()
+            .map(lines -> String.join("\n", lines))
+            .collect(Collectors.joining("\n\n"));
+        write(rewriter, importBlock);
+    }
+
+    private static Import prefixKey(Import anImport) {
+        return new Import(anImport.prefix(), anImport.isStatic());
+    }
+
+    private static void insertAfterPrefix(List<String> lines, Import addition) {
+        String prefixDeclaration = new Import(addition.prefix(), addition.isStatic()).declaration();
+        String prefixStart = prefixDeclaration.substring(0, prefixDeclaration.length() - 1);
+        int index = lines.size();
+        for (int i = lines.size() - 1; i >= 0; i--) {
+            if (lines.get(i).startsWith(prefixStart)) {
+                index = i + 1;
+                break;
+            }
+        }
+        lines.add(index, addition.declaration());
+    }
+
+    private void write(Rewriter rewriter, String importBlock) {
+        if (entries.isEmpty()) {
+            Optional.ofNullable(compilationUnit.packageDeclaration())
+                .ifPresentOrElse(
+                    packageDeclaration -> rewriter.insertAfter(packageDeclaration.getStop(), "\n\n" + importBlock),
+                    () -> rewriter.insertBefore(compilationUnit.getStart(), importBlock + "\n\n"));
+            return;
+        }
+
+        Token first = entries.get(0).ctx().getStart();
+        Token last = entries.get(entries.size() - 1).ctx().getStop();
+        rewriter.replace(first, last, importBlock);
+        List<Token> trailing = tokens.getHiddenTokensToRight(last.getTokenIndex(), JavaLexer.HIDDEN);
+        if (trailing != null && trailing.get(0).getType() == JavaLexer.WS) {
+            // the block is followed by a single blank line, or by nothing once every import is removed
+            rewriter.replace(trailing.get(0), importBlock.isEmpty() ? "" : "\n\n");
+        }
+    }
+}
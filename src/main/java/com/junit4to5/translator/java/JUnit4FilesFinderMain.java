@@ -28,11 +28,13 @@ public class JUnit4FilesFinderMain {
                     .map(Path::toString)
                     .filter(f -> f.contains(SRC_TEST_JAVA) && f.endsWith(".java"))
                     .forEach(inputFile -> {
-                        JUnit4FilesFinder jUnit4FilesFinder = buildJUnit4FilesFinder(inputFile);
+                        CommonTokenStream tokens = lex(inputFile);
+                        JUnit4FilesFinder jUnit4FilesFinder = buildJUnit4FilesFinder(tokens);
                         if (!jUnit4FilesFinder.isJUnit4TestRule()) {
                             String fileType = jUnit4FilesFinder.isJUnit5File() ? "JUNIT5" :
                                 jUnit4FilesFinder.isJUnit4File() ? "JUNIT4" : "HELPER";
-                            System.out.printf("%s:%s%n", fileType, inputFile);
+                            // the token count lets the translator start the costliest files first
+                            System.out.printf("%s:%s:%d%n", fileType, inputFile, tokens.size());
                         }
                     });
             }
@@ -41,21 +43,24 @@ public class JUnit4FilesFinderMain {
         }
     }
 
-    private static JUnit4FilesFinder buildJUnit4FilesFinder(String inputFile) {
+    private static CommonTokenStream lex(String inputFile) {
         try {
             var input = new FileInputStream(inputFile);
             var chars = CharStreams.fromStream(input);
             var lexer = new JavaLexer(chars);
-            var tokens = new CommonTokenStream(lexer);
-            var parser = new JavaParser(tokens);
-            parser.setBuildParseTree(true);
-            JavaParser.CompilationUnitContext compilationUnitContext = parser.compilationUnit();
-            var tree = compilationUnitContext.getRuleContext();
-            JUnit4FilesFinder jUnit4FilesFinder = new JUnit4FilesFinder();
-            jUnit4FilesFinder.visit(tree);
-            return jUnit4FilesFinder;
+            return new CommonTokenStream(lexer);
         } catch (IOException e) {
             throw new RuntimeException("Error reading the input file " + inputFile + ":", e);
         }
     }
+
+    private static JUnit4FilesFinder buildJUnit4FilesFinder(CommonTokenStream tokens) {
+        var parser = new JavaParser(tokens);
+        parser.setBuildParseTree(true);
+        JavaParser.CompilationUnitContext compilationUnitContext = parser.compilationUnit();
+        var tree = compilationUnitContext.getRuleContext();
+        JUnit4FilesFinder jUnit4FilesFinder = new JUnit4FilesFinder();
+        jUnit4FilesFinder.visit(tree);
+        return jUnit4FilesFinder;
+    }
 }
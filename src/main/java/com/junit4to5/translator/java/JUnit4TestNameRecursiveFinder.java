@@ -30,7 +30,7 @@ class JUnit4TestNameRecursiveFinder extends BaseJUnit4To5Pass {
 
     @Override
     public Void visitCompilationUnit(JavaParser.CompilationUnitContext ctx) {
-        currentScope = new GlobalScope();
+        currentScope = ScopeStack.global();
         super.visitCompilationUnit(ctx);
         if (fullyQualifiedName != null) {
             MetadataTable.Metadata metadata = metadataTable.get(fullyQualifiedName);
@@ -60,7 +60,7 @@ class JUnit4TestNameRecursiveFinder extends BaseJUnit4To5Pass {
 
     @Override
     public Void visitMethodDeclaration(JavaParser.MethodDeclarationContext ctx) {
-        currentScope = new NestedScope(currentScope);
+        currentScope = currentScope.nested();
         currentScope.declare("method", ctx);
         super.visitMethodDeclaration(ctx);
         currentScope = currentScope.enclosing();
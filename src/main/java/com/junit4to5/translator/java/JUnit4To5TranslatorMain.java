@@ -3,25 +3,30 @@ package com.junit4to5.translator.java;
 import java.io.BufferedInputStream;
 import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Scanner;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Function;
 import java.util.stream.Stream;
 
 import org.antlr.v4.runtime.CharStreams;
 import org.antlr.v4.runtime.CommonTokenStream;
-import org.antlr.v4.runtime.RuleContext;
-import org.antlr.v4.runtime.TokenStreamRewriter;
+import org.antlr.v4.runtime.tree.ParseTreeWalker;
 
 import antlr.java.JavaLexer;
 import antlr.java.JavaParser;
@@ -29,20 +34,26 @@ import antlr.java.JavaParser;
 public class JUnit4To5TranslatorMain {
     private static final String JUNIT_4 = "JUNIT4";
     private static final String HELPER = "HELPER";
-    private static final Map<String, SyntaxTree> SYNTAX_TREE_CACHE = new HashMap<>();
+    private static final Map<String, SyntaxTree> SYNTAX_TREE_CACHE = new ConcurrentHashMap<>();
+    private static final Set<String> PINNED_SYNTAX_TREES = ConcurrentHashMap.newKeySet();
 
     public static void main(String[] args) throws IOException {
-        if (args.length > 0) {
-            Path argPath = Path.of(args[0]);
+        TranslatorOptions options = TranslatorOptions.parse(args);
+        if (options.path().isPresent()) {
+            Path argPath = Path.of(options.path().get());
             if (Files.isDirectory(argPath)) {
                 try (Stream<Path> filesStream = Files.list(argPath)) {
                     translate(
+                        options,
                         Map.of(JUNIT_4, filesStream.map(Path::toString).toList()),
+                        Map.of(),
                         inputFile -> "output/" + Path.of(inputFile).subpath(1, 2));
                 }
             } else {
                 translate(
-                    Map.of(JUNIT_4, List.of(args[0])),
+                    options,
+                    Map.of(JUNIT_4, List.of(argPath.toString())),
+                    Map.of(),
                     inputFile -> "output/Test.java");
             }
             return;
@@ -50,115 +61,493 @@ public class JUnit4To5TranslatorMain {
         Scanner standardInputScanner = new Scanner(new BufferedInputStream(System.in), StandardCharsets.UTF_8);
 
         Map<String, List<String>> inputFiles = new HashMap<>();
+        Map<String, Long> classifiedTokens = new HashMap<>();
         while (standardInputScanner.hasNextLine()) {
             String[] input = standardInputScanner.nextLine().split(":");
             inputFiles.computeIfAbsent(input[0], __ -> new ArrayList<>());
             inputFiles.get(input[0]).add(input[1]);
+            if (input.length > 2) {
+                classifiedTokens.put(input[1], Long.parseLong(input[2]));
+            }
         }
-        translate(inputFiles, Function.identity());
+        translate(options, inputFiles, classifiedTokens, Function.identity());
     }
 
+    /**
+     * @param classifiedTokens the token counts of the input files the classifier gave, for the ones it did
+     */
     private static void translate(
+        TranslatorOptions options,
         Map<String, List<String>> inputFiles,
+        Map<String, Long> classifiedTokens,
         Function<String, String> outputPathFn
     ) throws IOException {
-        System.out.println("Collecting classes metadata ...");
+        // the standard output may carry the translated files, then the progress is reported on the standard error
+        PrintStream progress = options.writesToStandardOutput() ? System.err : System.out;
+        TranslationRules rules = TranslationRules.load(options.rulesPath());
+        Quarantine quarantine = new Quarantine(options.fileTimeout());
+        try (OutputSink outputSink = openOutputSink(options);
+             Journal journal = openJournal(options, inputFiles, outputPathFn, outputSink, progress)) {
+            if (options.speculative()) {
+                translateSpeculatively(rules, quarantine, inputFiles, outputPathFn, outputSink, progress);
+            } else {
+                translateAll(
+                    options.threads(),
+                    rules,
+                    quarantine,
+                    journal,
+                    inputFiles,
+                    classifiedTokens,
+                    outputPathFn,
+                    outputSink,
+                    progress);
+            }
+            if (options.lexerFallback()) {
+                Set<String> jUnit4Files =
+                    new HashSet<>(Optional.ofNullable(inputFiles.get(JUNIT_4)).orElseGet(List::of));
+                for (String inputFile : quarantine.files()) {
+                    if (jUnit4Files.contains(inputFile)) {
+                        progress.println(">> " + inputFile + " (lexer-only)");
+                        quarantine.fallBack(
+                            inputFile,
+                            () -> translateLexerOnly(rules, inputFile, outputPathFn.apply(inputFile), outputSink));
+                    }
+                }
+            }
+            outputSink.commit();
+            journal.checkpoint();
+        }
+        quarantine.report(progress);
+    }
+
+    private static OutputSink openOutputSink(TranslatorOptions options) throws IOException {
+        return switch (options.outputKind()) {
+            case FILES -> new OutputFiles();
+            case DIRECTORY -> new MirrorDirectorySink(Path.of(options.outputPath().orElseThrow()));
+            case ZIP -> new ZipSink(Path.of(options.outputPath().orElseThrow()));
+            case STREAM -> new StreamSink(System.out);
+            case NULL -> new NullSink();
+            case DIFF -> new DiffSink(System.out);
+        };
+    }
+
+    private static Journal openJournal(
+        TranslatorOptions options,
+        Map<String, List<String>> inputFiles,
+        Function<String, String> outputPathFn,
+        OutputSink outputSink,
+        PrintStream progress
+    ) throws IOException {
+        if (options.journalPath().isEmpty()) {
+            return Journal.none();
+        }
+        List<String> settings = List.of(
+            "output=%s:%s".formatted(options.outputKind(), options.outputPath().orElse("")),
+            "rules=" + (options.rulesPath().isPresent() ? Journal.hash(Path.of(options.rulesPath().get())) : ""));
+        Journal journal = Journal.open(
+            Path.of(options.journalPath().get()),
+            inputFiles,
+            settings,
+            inputFile -> outputSink.target(Paths.get(outputPathFn.apply(inputFile))).orElseThrow());
+        if (journal.loggedFiles() > 0) {
+            progress.printf("Resuming from the journal, %d file(s) already translated%n", journal.loggedFiles());
+        }
+        return journal;
+    }
+
+    private static void translateAll(
+        int threads,
+        TranslationRules rules,
+        Quarantine quarantine,
+        Journal journal,
+        Map<String, List<String>> inputFiles,
+        Map<String, Long> classifiedTokens,
+        Function<String, String> outputPathFn,
+        OutputSink outputSink,
+        PrintStream progress
+    ) throws IOException {
+        progress.println("Collecting classes metadata ...");
         CrossReferences crossReferences = new CrossReferences();
         MetadataTable metadataTable = new MetadataTable(crossReferences);
-        collectMetadata(
-            crossReferences,
-            metadataTable,
-            inputFiles.values().stream()
-                .flatMap(Collection::stream)
-                .toList());
-        for (String inputFile : Optional.ofNullable(inputFiles.get(HELPER)).orElseGet(ArrayList::new)) {
-            System.out.println(">> " + inputFile);
-            translateHelper(inputFile, outputPathFn.apply(inputFile));
+        List<String> helperFiles = Optional.ofNullable(inputFiles.get(HELPER)).orElseGet(ArrayList::new);
+        List<String> jUnit4Files = Optional.ofNullable(inputFiles.get(JUNIT_4)).orElseGet(ArrayList::new);
+        List<String> allFiles = inputFiles.values().stream()
+            .flatMap(Collection::stream)
+            .toList();
+        FileCosts costs = FileCosts.estimate(allFiles, classifiedTokens, journal);
+        Set<String> translatedFiles = ConcurrentHashMap.newKeySet();
+        try (TranslationScheduler scheduler =
+                 new TranslationScheduler(threads, () -> evictSyntaxTrees(translatedFiles))) {
+            Map<String, String> fullyQualifiedNames =
+                collectMetadata(scheduler, costs, quarantine, crossReferences, metadataTable, allFiles);
+            Set<String> helpers = new HashSet<>(helperFiles);
+            List<String> filesToTranslate = new ArrayList<>();
+            for (String inputFile : Stream.concat(helperFiles.stream(), jUnit4Files.stream()).toList()) {
+                if (!journal.isFinal(inputFile)) {
+                    filesToTranslate.add(inputFile);
+                }
+            }
+            scheduler.submitAll(
+                scheduleOrder(scheduler, costs, filesToTranslate),
+                baseClassFiles(metadataTable, fullyQualifiedNames, jUnit4Files),
+                inputFile -> () -> {
+                    boolean isHelper = helpers.contains(inputFile);
+                    progress.println(">> " + inputFile);
+                    long startedAt = System.nanoTime();
+                    boolean isTranslated = quarantine.run(inputFile, "translation", () -> {
+                        if (isHelper) {
+                            translateHelper(rules, inputFile, outputPathFn.apply(inputFile), outputSink);
+                        } else {
+                            translateJUnit4(
+                                rules,
+                                crossReferences,
+                                metadataTable,
+                                inputFile,
+                                outputPathFn.apply(inputFile),
+                                outputSink);
+                        }
+                    });
+                    costs.spent(inputFile, System.nanoTime() - startedAt);
+                    if (isTranslated) {
+                        journal.completed(inputFile, costs.actual(inputFile), outputSink);
+                    }
+                    translatedFiles.add(inputFile);
+                });
+            scheduler.awaitAll();
+            scheduler.report(progress);
+            if (scheduler.isParallel()) {
+                costs.report(progress);
+            }
         }
-        for (String inputFile : Optional.ofNullable(inputFiles.get(JUNIT_4)).orElseGet(ArrayList::new)) {
-            System.out.println(">> " + inputFile);
-            translateJUnit4(crossReferences, metadataTable, inputFile, outputPathFn.apply(inputFile));
+    }
+
+    /**
+     * The files declaring the base classes of each JUnit4 file, which the passes of the file read the TestInfo
+     * usages of, as the passes of these files left them.
+     */
+    private static Map<String, Set<String>> baseClassFiles(
+        MetadataTable metadataTable,
+        Map<String, String> fullyQualifiedNames,
+        List<String> jUnit4Files
+    ) {
+        Map<String, String> filesByClassName = new HashMap<>();
+        fullyQualifiedNames.forEach((inputFile, className) -> filesByClassName.put(className, inputFile));
+        Map<String, Set<String>> baseClassFiles = new HashMap<>();
+        for (String inputFile : jUnit4Files) {
+            Set<String> files = new LinkedHashSet<>();
+            Optional<String> maybeBaseClassName = Optional.ofNullable(fullyQualifiedNames.get(inputFile))
+                .flatMap(metadataTable::maybeBaseClassName);
+            while (maybeBaseClassName.isPresent()) {
+                String baseFile = filesByClassName.get(maybeBaseClassName.get());
+                if (baseFile == null || baseFile.equals(inputFile) || !files.add(baseFile)) {
+                    break;
+                }
+                maybeBaseClassName = metadataTable.maybeBaseClassName(maybeBaseClassName.get());
+            }
+            baseClassFiles.put(inputFile, files);
         }
+        return baseClassFiles;
     }
 
-    private static void collectMetadata(
+    /**
+     * The order to run the steps of the files in: the costliest first on several threads, as they came otherwise.
+     */
+    private static List<String> scheduleOrder(
+        TranslationScheduler scheduler,
+        FileCosts costs,
+        List<String> inputFiles
+    ) {
+        return scheduler.isParallel() ? costs.costliestFirst(inputFiles) : inputFiles;
+    }
+
+    /**
+     * Translates every file right after collecting its own metadata, assuming the metadata of the files still
+     * to come changes nothing for it. Once the metadata is complete, only the files whose assumptions turned
+     * out wrong are translated again.
+     */
+    private static void translateSpeculatively(
+        TranslationRules rules,
+        Quarantine quarantine,
+        Map<String, List<String>> inputFiles,
+        Function<String, String> outputPathFn,
+        OutputSink outputSink,
+        PrintStream progress
+    ) throws IOException {
+        progress.println("Collecting public classes ...");
+        CrossReferences crossReferences = new CrossReferences();
+        MetadataTable metadataTable = new MetadataTable(crossReferences);
+        List<String> helperFiles = Optional.ofNullable(inputFiles.get(HELPER)).orElseGet(ArrayList::new);
+        List<String> jUnit4Files = Optional.ofNullable(inputFiles.get(JUNIT_4)).orElseGet(ArrayList::new);
+        for (String inputFile : Stream.concat(helperFiles.stream(), jUnit4Files.stream()).toList()) {
+            quarantine.run(inputFile, "parse", () -> buildSyntaxTree(inputFile));
+            quarantine.run(
+                inputFile,
+                "metadata",
+                () -> new JavaPublicClassesFinder(crossReferences).visit(buildSyntaxTree(inputFile).ruleContext()));
+        }
+
+        Map<String, Speculation> speculations = new LinkedHashMap<>();
+        for (String inputFile : helperFiles) {
+            quarantine.run(inputFile, "metadata", () -> collectFileMetadata(crossReferences, metadataTable, inputFile));
+            progress.println(">> " + inputFile);
+            quarantine.run(
+                inputFile,
+                "translation",
+                () -> translateHelper(rules, inputFile, outputPathFn.apply(inputFile), outputSink));
+        }
+        for (String inputFile : jUnit4Files) {
+            quarantine.run(inputFile, "metadata", () -> {
+                String fullyQualifiedName = collectFileMetadata(crossReferences, metadataTable, inputFile);
+                speculations.put(inputFile, Speculation.record(fullyQualifiedName, crossReferences, metadataTable));
+            });
+            progress.println(">> " + inputFile);
+            if (!quarantine.run(
+                inputFile,
+                "translation",
+                () -> translateJUnit4(
+                    rules, crossReferences, metadataTable, inputFile, outputPathFn.apply(inputFile), outputSink))) {
+                speculations.remove(inputFile);
+            }
+        }
+
+        List<String> invalidated;
+        do {
+            invalidated = speculations.entrySet().stream()
+                .filter(e -> !e.getValue().holds(crossReferences, metadataTable))
+                .map(Map.Entry::getKey)
+                .toList();
+            for (String inputFile : invalidated) {
+                speculations.computeIfPresent(inputFile, (__, s) -> s.refresh(crossReferences, metadataTable));
+                progress.println(">> " + inputFile + " (redo)");
+                if (!quarantine.run(
+                    inputFile,
+                    "translation",
+                    () -> translateJUnit4(
+                        rules, crossReferences, metadataTable, inputFile, outputPathFn.apply(inputFile), outputSink))) {
+                    speculations.remove(inputFile);
+                }
+            }
+        } while (!invalidated.isEmpty());
+    }
+
+    private static String collectFileMetadata(
         CrossReferences crossReferences,
         MetadataTable metadataTable,
-        List<String> inputFiles
+        String inputFile
     ) {
+        var tree = buildSyntaxTree(inputFile);
+        var metadataCollector = new JavaMetadataCollector(metadataTable, crossReferences);
+        metadataCollector.visit(tree.ruleContext());
+        findTestNameUsages(metadataTable, tree);
+        return metadataCollector.getFullyQualifiedName();
+    }
+
+    /**
+     * @return the name of the class of each file
+     */
+    private static Map<String, String> collectMetadata(
+        TranslationScheduler scheduler,
+        FileCosts costs,
+        Quarantine quarantine,
+        CrossReferences crossReferences,
+        MetadataTable metadataTable,
+        List<String> inputFiles
+    ) throws IOException {
+        for (String inputFile : scheduleOrder(scheduler, costs, inputFiles)) {
+            scheduler.submit(() -> {
+                long startedAt = System.nanoTime();
+                quarantine.run(inputFile, "parse", () -> buildSyntaxTree(inputFile));
+                costs.spent(inputFile, System.nanoTime() - startedAt);
+            });
+        }
+        scheduler.awaitAll();
+
+        // the metadata is collected into tables shared by all files, one file after the other
         for (String inputFile : inputFiles) {
-            var tree = buildSyntaxTree(inputFile);
-            var classesFinder = new JavaPublicClassesFinder(crossReferences);
-            classesFinder.visit(tree.ruleContext());
+            quarantine.run(inputFile, "metadata", () -> {
+                var classesFinder = new JavaPublicClassesFinder(crossReferences);
+                classesFinder.visit(buildSyntaxTree(inputFile).ruleContext());
+            });
         }
 
+        Map<String, String> fullyQualifiedNames = new HashMap<>();
         for (String inputFile : inputFiles) {
-            var tree = buildSyntaxTree(inputFile);
-            var metadataCollector = new JavaMetadataCollector(metadataTable, crossReferences);
-            metadataCollector.visit(tree.ruleContext());
+            quarantine.run(inputFile, "metadata", () -> {
+                var metadataCollector = new JavaMetadataCollector(metadataTable, crossReferences);
+                metadataCollector.visit(pinSyntaxTree(inputFile).ruleContext());
+                Optional.ofNullable(metadataCollector.getFullyQualifiedName())
+                    .ifPresent(fullyQualifiedName -> fullyQualifiedNames.put(inputFile, fullyQualifiedName));
+                unpinUnlessReferenced(inputFile, metadataTable, fullyQualifiedNames.get(inputFile));
+            });
         }
 
         for (String inputFile : inputFiles) {
-            var tree = buildSyntaxTree(inputFile);
-            var jUnit4TestNameRecursiveFinder = new JUnit4TestNameRecursiveFinder(metadataTable);
-            jUnit4TestNameRecursiveFinder.visit(tree.ruleContext());
+            quarantine.run(inputFile, "metadata", () -> {
+                findTestNameUsages(metadataTable, pinSyntaxTree(inputFile));
+                unpinUnlessReferenced(inputFile, metadataTable, fullyQualifiedNames.get(inputFile));
+            });
+        }
+        return fullyQualifiedNames;
+    }
+
+    /**
+     * Drops the cached trees under heap pressure, all but those the metadata holds parts of until their file is
+     * translated, as the passes must find these parts in the tree they translate. The others are parsed again when
+     * needed.
+     */
+    private static void evictSyntaxTrees(Set<String> translatedFiles) {
+        for (String inputFile : SYNTAX_TREE_CACHE.keySet()) {
+            SYNTAX_TREE_CACHE.computeIfPresent(
+                inputFile,
+                (__, tree) -> translatedFiles.contains(inputFile) || !PINNED_SYNTAX_TREES.contains(inputFile) ?
+                    null :
+                    tree);
+        }
+    }
+
+    /**
+     * The tree of the file, kept cached until the file is translated, for a step which may record parts of it in
+     * the metadata.
+     */
+    private static SyntaxTree pinSyntaxTree(String inputFile) {
+        SyntaxTree tree = buildSyntaxTree(inputFile);
+        // atomic with the eviction of the file, which may have happened since the tree was built
+        return SYNTAX_TREE_CACHE.compute(inputFile, (__, cached) -> {
+            PINNED_SYNTAX_TREES.add(inputFile);
+            return cached != null ? cached : tree;
+        });
+    }
+
+    private static void unpinUnlessReferenced(
+        String inputFile,
+        MetadataTable metadataTable,
+        String fullyQualifiedName
+    ) {
+        boolean isReferenced = fullyQualifiedName != null && metadataTable.maybeGet(fullyQualifiedName)
+            .filter(metadata -> !metadata.getTestInfoUsageMethods().isEmpty())
+            .isPresent();
+        if (!isReferenced) {
+            PINNED_SYNTAX_TREES.remove(inputFile);
+        }
+    }
+
+    private static void findTestNameUsages(MetadataTable metadataTable, SyntaxTree tree) {
+        if (FileFeatures.of(tree.ruleContext(), tree.tokenIndex(), metadataTable).needsTestInfoPropagation()) {
+            new JUnit4TestNameRecursiveFinder(metadataTable).visit(tree.ruleContext());
         }
     }
 
     private static void translateHelper(
+        TranslationRules rules,
         String inputFile,
-        String outputFile
+        String outputFile,
+        OutputSink outputSink
     ) throws IOException {
         var tree = buildSyntaxTree(inputFile);
-        Rewriter rewriter = new Rewriter(new TokenStreamRewriter(tree.tokens()), new HiddenTokens(tree.tokens()));
-        new HelperTranslator(rewriter).visit(tree.ruleContext());
+        Rewriter rewriter = new Rewriter(tree.tokens(), tree.hiddenTokens());
+        Imports imports = Imports.get(tree.ruleContext(), tree.tokens());
+        new HelperTranslator(rewriter, imports, rules, tree.tokenIndex(), tree.enclosingContexts())
+            .translate(tree.ruleContext());
+        imports.render(rewriter);
 
-        saveOutput(rewriter.getText(), Paths.get(outputFile));
+        outputSink.write(Paths.get(inputFile), Paths.get(outputFile), rewriter);
     }
 
     private static void translateJUnit4(
+        TranslationRules rules,
         CrossReferences crossReferences,
         MetadataTable metadataTable,
         String inputFile,
-        String outputFile
+        String outputFile,
+        OutputSink outputSink
     ) throws IOException {
         var tree = buildSyntaxTree(inputFile);
-        Rewriter rewriter = new Rewriter(new TokenStreamRewriter(tree.tokens()), new HiddenTokens(tree.tokens()));
+        Rewriter rewriter = new Rewriter(tree.tokens(), tree.hiddenTokens());
         SymbolTable symbolTable = new SymbolTable();
-        new JUnit4to5TranslatorFirstPass(tree.tokens(), rewriter, metadataTable, crossReferences, symbolTable)
-            .visit(tree.ruleContext());
-        new JUnit4to5TranslatorSecondPass(tree.tokens(), rewriter, metadataTable)
-            .visit(tree.ruleContext());
-        new JUnit4to5TranslatorFormattingPass(tree.tokens(), rewriter)
+        Imports imports = Imports.get(tree.ruleContext(), tree.tokens());
+        FileFeatures features = FileFeatures.of(tree.ruleContext(), tree.tokenIndex(), metadataTable);
+        new JUnit4to5TranslatorFirstPass(
+                tree.tokens(), rewriter, metadataTable, crossReferences, symbolTable, imports, rules, tree.tokenIndex())
             .visit(tree.ruleContext());
+        if (features.needsTestInfoPropagation()) {
+            new JUnit4to5TranslatorSecondPass(tree.tokens(), rewriter, metadataTable, imports, tree.tokenIndex())
+                .visit(tree.ruleContext());
+        } else {
+            // the second pass would only add the imports the first pass collected
+            metadataTable.maybeGet(features.fullyQualifiedName())
+                .ifPresent(imports::addCollected);
+        }
+        imports.render(rewriter);
+        if (rewriter.hasChanges()) {
+            new JUnit4to5TranslatorFormattingPass(tree.tokens(), rewriter, tree.enclosingContexts())
+                .visit(tree.ruleContext());
+        }
 
-        saveOutput(rewriter.getText(), Paths.get(outputFile));
+        outputSink.write(Paths.get(inputFile), Paths.get(outputFile), rewriter);
     }
 
-    private static SyntaxTree buildSyntaxTree(String inputFile) {
-        return SYNTAX_TREE_CACHE.computeIfAbsent(inputFile, f -> {
-            try {
-                var input = new FileInputStream(f);
-                var chars = CharStreams.fromStream(input);
-                var lexer = new JavaLexer(chars);
-                var tokens = new CommonTokenStream(lexer);
-                var parser = new JavaParser(tokens);
-                parser.setBuildParseTree(true);
-                JavaParser.CompilationUnitContext compilationUnitContext = parser.compilationUnit();
-                return new SyntaxTree(compilationUnitContext.getRuleContext(), tokens);
-            } catch (IOException e) {
-                throw new IllegalArgumentException("File %s not found:".formatted(f), e);
-            }
-        });
+    /**
+     * The degraded translation of a quarantined JUnit4 file, made from its tokens alone.
+     */
+    private static void translateLexerOnly(
+        TranslationRules rules,
+        String inputFile,
+        String outputFile,
+        OutputSink outputSink
+    ) throws IOException {
+        var tokens = Deadline.checkedTokenStream(new JavaLexer(CharStreams.fromFileName(inputFile)));
+        tokens.fill();
+        Rewriter rewriter = new Rewriter(tokens, new HiddenTokens(tokens));
+        new LexerOnlyTranslator(rewriter, rules).translate(tokens);
+
+        outputSink.write(Paths.get(inputFile), Paths.get(outputFile), rewriter);
     }
 
-    private record SyntaxTree(RuleContext ruleContext, CommonTokenStream tokens) {}
+    private static SyntaxTree buildSyntaxTree(String inputFile) {
+        SyntaxTree cached = SYNTAX_TREE_CACHE.get(inputFile);
+        if (cached != null) {
+            return cached;
+        }
+        // parsed outside the map, which would hold the lock of the bin of the file for the whole parse
+        SyntaxTree tree = parseSyntaxTree(inputFile);
+        SyntaxTree raced = SYNTAX_TREE_CACHE.putIfAbsent(inputFile, tree);
+        return raced != null ? raced : tree;
+    }
 
-    private static void saveOutput(String text, Path outputPath) throws IOException {
-        Files.writeString(
-            outputPath,
-            text,
-            StandardOpenOption.CREATE,
-            StandardOpenOption.TRUNCATE_EXISTING);
+    private static SyntaxTree parseSyntaxTree(String inputFile) {
+        try {
+            var input = new FileInputStream(inputFile);
+            var chars = CharStreams.fromStream(input);
+            var lexer = new JavaLexer(chars);
+            var tokens = Deadline.checkedTokenStream(lexer);
+            var enclosingContexts = new EnclosingContexts();
+            var compilationUnit = ChunkedParser.maybeParse(tokens)
+                .map(chunked -> {
+                    ParseTreeWalker.DEFAULT.walk(enclosingContexts, chunked);
+                    return chunked;
+                })
+                .orElseGet(() -> {
+                    var parser = new JavaParser(tokens);
+                    parser.setBuildParseTree(true);
+                    parser.addParseListener(enclosingContexts);
+                    return parser.compilationUnit();
+                });
+            return new SyntaxTree(
+                compilationUnit,
+                tokens,
+                new HiddenTokens(tokens),
+                enclosingContexts,
+                new TokenIndex(tokens, enclosingContexts));
+        } catch (IOException e) {
+            throw new UncheckedIOException("File %s not found:".formatted(inputFile), e);
+        }
     }
+
+    private record SyntaxTree(
+        JavaParser.CompilationUnitContext ruleContext,
+        CommonTokenStream tokens,
+        HiddenTokens hiddenTokens,
+        EnclosingContexts enclosingContexts,
+        TokenIndex tokenIndex
+    ) {}
 }
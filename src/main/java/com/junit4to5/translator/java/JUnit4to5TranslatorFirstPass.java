@@ -1,56 +1,43 @@
 package com.junit4to5.translator.java;
 
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
-import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 import org.antlr.v4.runtime.BufferedTokenStream;
 import org.antlr.v4.runtime.ParserRuleContext;
-import org.antlr.v4.runtime.RuleContext;
 import org.antlr.v4.runtime.Token;
-import org.antlr.v4.runtime.tree.TerminalNode;
 
 import antlr.java.JavaLexer;
 import antlr.java.JavaParser;
 
 class JUnit4to5TranslatorFirstPass extends BaseJUnit4To5Pass {
     static final String METHOD_SCOPE = "method";
-    private static final Map<String, String> TEST_UTIL_DEPENDENCY_CALLS = Map.of(
-        "CaptureAppTestUtil", "of",
-        "EtlTestUtil", "of",
-        "TestNameUtil", "of");
-    private static final Map<String, String> TEST_UTIL_STATIC_LIBS_CALLS = Map.of(
-        "GoldTable", "start");
-    private static final List<String> IMPORTS_FOR_REMOVAL = List.of(
-        "com.tngtech.java.junit.dataprovider.DataProvider",
-        "com.tngtech.java.junit.dataprovider.DataProviderRunner",
-        "com.tngtech.java.junit.dataprovider.UseDataProvider",
-        "org.springframework.test.context.junit4.SpringJUnit4ClassRunner",
-        "org.mockito.junit.MockitoJUnitRunner",
-        "junit.framework.TestCase");
-    private static final List<String> CLASS_ACCESS = List.of(
-        "this.getClass()", "getClass()",
-        // TODO - hardcoded expressions known by return Class type
-        //  correct would be to collect metadata of all classes before translation
-        "helper.getTestClass()");
-    private static final String[] SETUP_RULES = {
-        "TestDataSetupRule",
-        "BlockbusterApiTestSetupRule",
-        "ScoreboardTestSetupRule"};
+    // names and tokens whose presence in a method body may lead to a translation inside it, besides test name rules
+    private static final List<String> METHOD_BODY_TRIGGERS = List.of(
+        "Assert", "assertEquals", "assumeTrue", "TestCase", "enum", "record", "interface",
+        TokenIndex.ANNOTATION, TokenIndex.CLASS_BODY);
 
     private final BufferedTokenStream tokens;
     private final Rewriter rewriter;
     private final MetadataTable metadataTable;
     private final CrossReferences crossReferences;
     private final SymbolTable symbolTable;
+    private final Imports imports;
+    private final TranslationRules rules;
+    private final String[] setupRules;
     private final HiddenTokens hiddenTokens;
+    private final TokenTexts texts;
     private final ParameterAdder parameterAdder;
     private final List<String> setupRuleCalls;
+    private final TokenIndex tokenIndex;
+    private final Set<String> methodBodyTriggers;
 
     private Scope currentScope;
     private String packageDeclaration;
@@ -76,21 +63,30 @@ class JUnit4to5TranslatorFirstPass extends BaseJUnit4To5Pass {
         Rewriter rewriter,
         MetadataTable metadataTable,
         CrossReferences crossReferences,
-        SymbolTable symbolTable
+        SymbolTable symbolTable,
+        Imports imports,
+        TranslationRules rules,
+        TokenIndex tokenIndex
     ) {
         this.tokens = tokens;
         this.rewriter = rewriter;
         this.metadataTable = metadataTable;
         this.crossReferences = crossReferences;
         this.symbolTable = symbolTable;
-        hiddenTokens = new HiddenTokens(tokens);
-        parameterAdder = new ParameterAdder(rewriter, tokens);
+        this.imports = imports;
+        this.rules = rules;
+        setupRules = rules.setupRules().toArray(String[]::new);
+        hiddenTokens = rewriter.hiddenTokens();
+        texts = new TokenTexts(tokens);
+        parameterAdder = new ParameterAdder(rewriter);
         setupRuleCalls = new ArrayList<>();
+        this.tokenIndex = tokenIndex;
+        methodBodyTriggers = new HashSet<>(METHOD_BODY_TRIGGERS);
     }
 
     @Override
     public Void visitCompilationUnit(JavaParser.CompilationUnitContext ctx) {
-        currentScope = new GlobalScope();
+        currentScope = ScopeStack.global();
         super.visitCompilationUnit(ctx);
         if (testAnnotationUsage > 0) {
             metadataTable.get(fullyQualifiedName)
@@ -102,7 +98,7 @@ class JUnit4to5TranslatorFirstPass extends BaseJUnit4To5Pass {
         }
         if (!hasBeforeMethod) {
             MetadataTable.Metadata metadata = metadataTable.get(fullyQualifiedName);
-            String setupRuleCalls = metadata.streamRules(SETUP_RULES)
+            String setupRuleCalls = metadata.streamRules(setupRules)
                 .map(setupRule -> "%8s%s%n".formatted("", buildSetupRuleCall(setupRule)))
                 .collect(Collectors.joining());
             if (!setupRuleCalls.isEmpty()) {
@@ -120,89 +116,33 @@ class JUnit4to5TranslatorFirstPass extends BaseJUnit4To5Pass {
 
     @Override
     public Void visitPackageDeclaration(JavaParser.PackageDeclarationContext ctx) {
-        packageDeclaration = ctx.qualifiedName().getText();
+        packageDeclaration = texts.text(ctx.qualifiedName());
         return null;
     }
 
     @Override
     public Void visitImportDeclaration(JavaParser.ImportDeclarationContext ctx) {
-        boolean wildcardImport = ctx.DOT() != null && ctx.MUL() != null;
-        String importName = wildcardImport ?
-            ctx.qualifiedName().getText() + ".*" :
-            ctx.qualifiedName().getText();
+        String importName = Imports.Import.of(ctx).name();
+        boolean isStatic = ctx.STATIC() != null;
         symbolTable.addImport(importName);
-        if (importName.startsWith("org.junit") && !importName.startsWith("org.junit.jupiter")) {
-            getJUnit5Import(ctx.STATIC(), importName)
-                .ifPresentOrElse(
-                    jUnit5Import -> rewriter.replace(ctx.start, ctx.stop, jUnit5Import),
-                    () -> {
-                        rewriter.delete(ctx.start, ctx.stop);
-                        rewriter.deleteNextIf(ctx.stop, "\n");
-                    });
-        } else if (IMPORTS_FOR_REMOVAL.contains(importName)) {
-            rewriter.delete(ctx.start, ctx.stop);
-            rewriter.deleteNextIf(ctx.stop, "\n", hiddenToken -> hiddenToken.substring(1));
+        rules.maybeImportRule(importName, isStatic)
+            .ifPresentOrElse(
+                rule -> rule.maybeReplacement()
+                    .ifPresentOrElse(
+                        jUnit5Import -> imports.replace(ctx, jUnit5Import),
+                        () -> imports.remove(ctx)),
+                () -> {
+                    if (importName.startsWith("org.junit") && !importName.startsWith("org.junit.jupiter")) {
+                        throw new IllegalStateException(
+                            (isStatic ? "Unexpected JUnit static import: " : "Unexpected JUnit import: ") + importName);
+                    }
+                });
+        if (isStatic && "org.junit.Assume.assumeTrue".equals(importName)) {
+            hasAssumeTrueTranslation = true;
         }
         return super.visitImportDeclaration(ctx);
     }
 
-    private Optional<String> getJUnit5Import(
-        TerminalNode staticNode,
-        String importName
-    ) {
-        return staticNode != null ?
-            Optional.of(getJUnit5StaticImport(importName)) :
-            getJUnit5NonStaticImport(importName);
-    }
-
-    private String getJUnit5StaticImport(String importName) {
-        return "import static %s;".formatted(
-            switch (importName) {
-                case "org.junit.Assert.*" -> "org.junit.jupiter.api.Assertions.*";
-                case "org.junit.Assert.assertArrayEquals" -> "org.junit.jupiter.api.Assertions.assertArrayEquals";
-                case "org.junit.Assert.assertEquals" -> "org.junit.jupiter.api.Assertions.assertEquals";
-                case "org.junit.Assert.assertNotEquals" -> "org.junit.jupiter.api.Assertions.assertNotEquals";
-                case "org.junit.Assert.assertSame" -> "org.junit.jupiter.api.Assertions.assertSame";
-                case "org.junit.Assert.assertNull" -> "org.junit.jupiter.api.Assertions.assertNull";
-                case "org.junit.Assert.assertNotNull" -> "org.junit.jupiter.api.Assertions.assertNotNull";
-                case "org.junit.Assert.assertTrue" -> "org.junit.jupiter.api.Assertions.assertTrue";
-                case "org.junit.Assert.assertFalse" -> "org.junit.jupiter.api.Assertions.assertFalse";
-                case "org.junit.Assert.assertThrows" -> "org.junit.jupiter.api.Assertions.assertThrows";
-                case "org.junit.Assert.fail" -> "org.junit.jupiter.api.Assertions.fail";
-                case "org.junit.Assume.assumeTrue" -> {
-                    hasAssumeTrueTranslation = true;
-                    yield "org.junit.jupiter.api.Assumptions.assumeTrue";
-                }
-                case "org.junit.internal.matchers.ThrowableMessageMatcher.hasMessage" -> importName;
-                default -> throw new IllegalStateException("Unexpected JUnit static import: " + importName);
-            });
-    }
-
-    private Optional<String> getJUnit5NonStaticImport(String importName) {
-        return Optional.ofNullable(
-                switch (importName) {
-                    case "org.junit.Assert" -> "org.junit.jupiter.api.Assertions";
-                    case "org.junit.Before" -> "org.junit.jupiter.api.BeforeEach";
-                    case "org.junit.BeforeClass" -> "org.junit.jupiter.api.BeforeAll";
-                    case "org.junit.After" -> "org.junit.jupiter.api.AfterEach";
-                    case "org.junit.AfterClass" -> "org.junit.jupiter.api.AfterAll";
-                    case "org.junit.Ignore" -> "org.junit.jupiter.api.Disabled";
-                    case "org.junit.rules.ErrorCollector",
-                         "org.junit.rules.ExpectedException",
-                         "org.junit.rules.TestRule",
-                         "org.junit.runners.model.Statement",
-                         "org.junit.runner.Description" -> importName; // TODO - review
-                    case "org.junit.runner.RunWith",
-                         "org.junit.Rule",
-                         "org.junit.runners.Parameterized",
-                         "org.junit.runners.Parameterized.Parameters",
-                         "org.junit.Test",
-                         "org.junit.rules.TestName" -> null;
-                    default -> throw new IllegalStateException("Unexpected JUnit import: " + importName);
-                })
-            .map("import %s;"::formatted);
-    }
-
     @Override
     public Void visitAnnotation(JavaParser.AnnotationContext ctx) {
         maybeExpectedTestAnnotationClause(ctx)
@@ -223,7 +163,7 @@ class JUnit4to5TranslatorFirstPass extends BaseJUnit4To5Pass {
     }
 
     private Optional<String> maybeExpectedTestAnnotationClause(JavaParser.AnnotationContext ctx) {
-        String annotationName = ctx.qualifiedName().getText();
+        String annotationName = texts.text(ctx.qualifiedName());
         if ("Test".equals(annotationName)) {
             return Optional.ofNullable(ctx.elementValuePairs())
                 .map(JavaParser.ElementValuePairsContext::elementValuePair)
@@ -235,10 +175,10 @@ class JUnit4to5TranslatorFirstPass extends BaseJUnit4To5Pass {
                     }
 
                     var valuePair = pairs.get(0);
-                    if (!"expected".equals(valuePair.identifier().getText())) {
+                    if (!texts.equals(valuePair.identifier(), "expected")) {
                         throw new IllegalStateException("Unexpected annotation value pairs: " + ctx.getText());
                     }
-                    return Optional.of(valuePair.elementValue().getText());
+                    return Optional.of(texts.text(valuePair.elementValue()));
                 });
         }
 
@@ -246,7 +186,7 @@ class JUnit4to5TranslatorFirstPass extends BaseJUnit4To5Pass {
     }
 
     private Optional<String> maybeAnnotationReplacement(JavaParser.AnnotationContext ctx) {
-        String annotationName = ctx.qualifiedName().getText();
+        String annotationName = texts.text(ctx.qualifiedName());
         switch (annotationName) {
             case "Test" -> {
                 isTranslatingJUnitAnnotatedMethod = true;
@@ -287,73 +227,50 @@ class JUnit4to5TranslatorFirstPass extends BaseJUnit4To5Pass {
     }
 
     private Optional<String> maybeAnnotationReplacementDefault(JavaParser.AnnotationContext ctx) {
-        String annotationName = ctx.qualifiedName().getText();
-        return switch (annotationName) {
-            case "RunWith" -> switch (ctx.elementValue().getText()) {
-                case "DataProviderRunner.class",
-                     "Parameterized.class" -> Optional.of("");
-                case "SpringJUnit4ClassRunner.class" -> {
-                    MetadataTable.Metadata metadata = metadataTable.get(fullyQualifiedName);
-                    metadata.addImport("org.junit.jupiter.api.extension.ExtendWith");
-                    metadata.addImport("org.springframework.test.context.junit.jupiter.SpringExtension");
-                    yield Optional.of("@ExtendWith(SpringExtension.class)");
-                }
-                case "MockitoJUnitRunner.class" -> {
-                    MetadataTable.Metadata metadata = metadataTable.get(fullyQualifiedName);
-                    metadata.addImport("org.junit.jupiter.api.extension.ExtendWith");
-                    metadata.addImport("org.mockito.junit.jupiter.MockitoExtension");
-                    yield Optional.of("@ExtendWith(MockitoExtension.class)");
-                }
-                default -> throw new IllegalStateException("Unexpected JUnit RunWith: " + ctx.getText());
-            };
-            case "Before" -> {
-                isTranslatingJUnitAnnotatedMethod = true;
-                isTranslatingBeforeMethod = true;
-                hasBeforeMethod = true;
-                yield Optional.of("@BeforeEach");
+        String annotationName = texts.text(ctx.qualifiedName());
+        if ("RunWith".equals(annotationName)) {
+            TranslationRules.RunnerRule runnerRule = rules.maybeRunnerRule(texts.text(ctx.elementValue()))
+                .orElseThrow(() -> new IllegalStateException("Unexpected JUnit RunWith: " + ctx.getText()));
+            for (String runnerImport : runnerRule.imports()) {
+                metadataTable.get(fullyQualifiedName).addImport(runnerImport);
             }
-            case "BeforeClass" -> {
-                isTranslatingJUnitAnnotatedMethod = true;
-                yield Optional.of("@BeforeAll");
-            }
-            case "After" -> {
-                isTranslatingJUnitAnnotatedMethod = true;
-                yield Optional.of("@AfterEach");
-            }
-            case "AfterClass" -> {
-                isTranslatingJUnitAnnotatedMethod = true;
-                yield Optional.of("@AfterAll");
-            }
-            case "Ignore" -> {
-                isTranslatingJUnitAnnotatedMethod = true;
-                yield Optional.of("@Disabled");
-            }
-            case "DataProvider" -> Optional.of("");
-            default -> Optional.empty();
-        };
+            return Optional.of(runnerRule.replacement());
+        }
+        return rules.maybeAnnotationRule(annotationName)
+            .map(annotationRule -> {
+                switch (annotationRule.annotatedMethod()) {
+                    case BEFORE_EACH -> {
+                        isTranslatingJUnitAnnotatedMethod = true;
+                        isTranslatingBeforeMethod = true;
+                        hasBeforeMethod = true;
+                    }
+                    case TEST_METHOD -> isTranslatingJUnitAnnotatedMethod = true;
+                    case ANY -> {
+                    }
+                }
+                return annotationRule.replacement();
+            });
     }
 
     private String generatedMethodSourceAnnotation(JavaParser.AnnotationContext ctx) {
         String methodSourceParam = Optional.ofNullable(ctx.elementValue())
-            .map(RuleContext::getText)
+            .map(texts::text)
             .orElseGet(() -> {
                 var elementValuePairs = ctx.elementValuePairs().elementValuePair();
                 int elementValuePairsSize = elementValuePairs.size();
                 if (elementValuePairsSize == 2) {
                     var value = elementValuePairs.stream()
-                        .filter(e -> e.identifier().getText().equals("value"))
+                        .filter(e -> texts.equals(e.identifier(), "value"))
                         .findFirst()
+                        .map(e -> texts.text(e.elementValue()))
                         .orElseThrow(() -> new IllegalStateException(
-                            "No value parameter found in annotation: " + ctx.getText()))
-                        .elementValue()
-                        .getText();
+                            "No value parameter found in annotation: " + ctx.getText()));
                     var location = elementValuePairs.stream()
-                        .filter(e -> e.identifier().getText().equals("location"))
+                        .filter(e -> texts.equals(e.identifier(), "location"))
                         .findFirst()
+                        .map(e -> texts.text(e.elementValue()))
                         .orElseThrow(() -> new IllegalStateException(
                             "No location parameter found in annotation: " + ctx.getText()))
-                        .elementValue()
-                        .getText()
                         .replace(".class", "");
                     return "\"%s#%s\"".formatted(
                         symbolTable.getImportFor(location)
@@ -363,11 +280,11 @@ class JUnit4to5TranslatorFirstPass extends BaseJUnit4To5Pass {
                         value.substring(1, value.length() - 1));
                 } else if (elementValuePairsSize == 1) {
                     var elementValuePair = elementValuePairs.get(0);
-                    if (!"value".equals(elementValuePair.identifier().getText())) {
+                    if (!texts.equals(elementValuePair.identifier(), "value")) {
                         throw new IllegalStateException(
                             "No value parameter found in annotation: " + ctx.getText());
                     }
-                    return elementValuePair.elementValue().getText();
+                    return texts.text(elementValuePair.elementValue());
                 } else {
                     throw new IllegalStateException(
                         "Unexpected annotation parameters: " + ctx.getText());
@@ -391,9 +308,9 @@ class JUnit4to5TranslatorFirstPass extends BaseJUnit4To5Pass {
         var classDeclaration = ctx.classDeclaration();
         if (classDeclaration != null) {
             fullyQualifiedName = "%s.%s".formatted(
-                packageDeclaration, classDeclaration.identifier().getText());
+                packageDeclaration, texts.text(classDeclaration.identifier()));
             if (!crossReferences.hasCrossReference(fullyQualifiedName)) {
-                maybePublicToken(ctx.classOrInterfaceModifier().stream())
+                maybePublicToken(ctx)
                     .ifPresent(this::deleteTokenPlusSpace);
             }
         }
@@ -402,7 +319,7 @@ class JUnit4to5TranslatorFirstPass extends BaseJUnit4To5Pass {
 
     @Override
     public Void visitInterfaceDeclaration(JavaParser.InterfaceDeclarationContext ctx) {
-        currentScope = new NestedScope(currentScope);
+        currentScope = currentScope.nested();
         super.visitInterfaceDeclaration(ctx);
         currentScope = currentScope.enclosing();
         return null;
@@ -410,7 +327,7 @@ class JUnit4to5TranslatorFirstPass extends BaseJUnit4To5Pass {
 
     @Override
     public Void visitEnumDeclaration(JavaParser.EnumDeclarationContext ctx) {
-        currentScope = new NestedScope(currentScope);
+        currentScope = currentScope.nested();
         super.visitEnumDeclaration(ctx);
         currentScope = currentScope.enclosing();
         return null;
@@ -418,7 +335,7 @@ class JUnit4to5TranslatorFirstPass extends BaseJUnit4To5Pass {
 
     @Override
     public Void visitRecordDeclaration(JavaParser.RecordDeclarationContext ctx) {
-        currentScope = new NestedScope(currentScope);
+        currentScope = currentScope.nested();
         super.visitRecordDeclaration(ctx);
         currentScope = currentScope.enclosing();
         return null;
@@ -428,13 +345,18 @@ class JUnit4to5TranslatorFirstPass extends BaseJUnit4To5Pass {
     public Void visitClassDeclaration(JavaParser.ClassDeclarationContext ctx) {
         boolean isBeforeMainClassScope = currentScope.depth() == 1;
         if (isBeforeMainClassScope && ctx.EXTENDS() != null) {
-            currentScope = new NestedScope(currentScope);
+            currentScope = currentScope.nested();
             metadataTable.getBase(fullyQualifiedName)
                 .ifPresent(baseClassMetadata ->
-                    baseClassMetadata.getInstanceVariables().forEach(currentScope::declare));
+                    baseClassMetadata.getInstanceVariables().forEach((name, type) -> {
+                        currentScope.declare(name, type);
+                        if (TEST_NAME_RULE.equals(type)) {
+                            methodBodyTriggers.add(name);
+                        }
+                    }));
         }
 
-        currentScope = new NestedScope(currentScope, CLASS_SCOPE);
+        currentScope = currentScope.nested(CLASS_SCOPE);
         currentScope.declare("$main", isBeforeMainClassScope);
         maybeExtendsTestCase(ctx)
             .ifPresent(testCase -> {
@@ -528,19 +450,19 @@ class JUnit4to5TranslatorFirstPass extends BaseJUnit4To5Pass {
                 if (currentScope.hasBool("$main") && memberDeclaration.methodDeclaration() != null) {
                     boolean hasCrossReference = crossReferences.hasCrossReference(
                         fullyQualifiedName,
-                        memberDeclaration.methodDeclaration().identifier().getText(),
+                        texts.text(memberDeclaration.methodDeclaration().identifier()),
                         FormalParameters.get(memberDeclaration.methodDeclaration().formalParameters()).size());
                     if (!hasCrossReference) {
-                        maybePublicToken(ctx.modifier().stream()
-                            .map(JavaParser.ModifierContext::classOrInterfaceModifier)
-                            .filter(Objects::nonNull))
+                        maybePublicToken(ctx)
                             .ifPresent(this::deleteTokenPlusSpace);
                     }
                 }
 
                 Optional.ofNullable(memberDeclaration.fieldDeclaration())
                     .filter(f -> isTestNameRule(ctx, f))
-                    .ifPresent(__ -> {
+                    .ifPresent(f -> {
+                        f.variableDeclarators().variableDeclarator()
+                            .forEach(v -> methodBodyTriggers.add(texts.text(v.variableDeclaratorId())));
                         ruleAnnotationUsage--;
                         rewriter.delete(ctx.start, ctx.stop);
                         rewriter.deleteNextIf(ctx.stop, "\n");
@@ -549,14 +471,11 @@ class JUnit4to5TranslatorFirstPass extends BaseJUnit4To5Pass {
                 declareInstanceVariables(ctx, currentScope);
             });
 
-        List<String> annotations = getAnnotationsStream(ctx)
-            .map(JavaParser.AnnotationContext::qualifiedName)
-            .map(RuleContext::getText)
-            .toList();
-        if (annotations.contains("UseDataProvider") ||
-            annotations.contains("Test") && annotations.contains("DataProvider")) {
+        boolean isTest = hasAnnotation(ctx, "Test");
+        if (hasAnnotation(ctx, "UseDataProvider") ||
+            isTest && hasAnnotation(ctx, "DataProvider")) {
             isTranslatingParameterizedTest = true;
-            isMissingTestAnnotation = !annotations.contains("Test");
+            isMissingTestAnnotation = !isTest;
             metadataTable.get(fullyQualifiedName)
                 .addImport("org.junit.jupiter.params.ParameterizedTest");
         }
@@ -577,7 +496,7 @@ class JUnit4to5TranslatorFirstPass extends BaseJUnit4To5Pass {
     @Override
     public Void visitConstructorDeclaration(JavaParser.ConstructorDeclarationContext ctx) {
         currentScope.declareList("constructor", ctx);
-        currentScope = new NestedScope(currentScope);
+        currentScope = currentScope.nested();
         super.visitConstructorDeclaration(ctx);
         currentScope = currentScope.enclosing();
         return null;
@@ -592,7 +511,7 @@ class JUnit4to5TranslatorFirstPass extends BaseJUnit4To5Pass {
             .ifPresent(this::replaceOldTestNameRuleSignature);
         Optional<JavaParser.ClassBodyContext> maybeAnonymousClassCreator = maybeClassCreator
             .map(JavaParser.ClassCreatorRestContext::classBody);
-        maybeAnonymousClassCreator.ifPresent(__ -> currentScope = new NestedScope(currentScope));
+        maybeAnonymousClassCreator.ifPresent(__ -> currentScope = currentScope.nested());
         super.visitCreator(ctx);
         maybeAnonymousClassCreator.ifPresent(__ -> currentScope = currentScope.enclosing());
         return null;
@@ -600,7 +519,7 @@ class JUnit4to5TranslatorFirstPass extends BaseJUnit4To5Pass {
 
     @Override
     public Void visitLambdaExpression(JavaParser.LambdaExpressionContext ctx) {
-        currentScope = new NestedScope(currentScope);
+        currentScope = currentScope.nested();
         super.visitLambdaExpression(ctx);
         currentScope = currentScope.enclosing();
         return null;
@@ -609,7 +528,7 @@ class JUnit4to5TranslatorFirstPass extends BaseJUnit4To5Pass {
     @Override
     public Void visitLambdaParameters(JavaParser.LambdaParametersContext ctx) {
         ctx.identifier()
-            .forEach(identifier -> currentScope.declare(identifier.getText(), "notInferredLambdaParameter"));
+            .forEach(identifier -> currentScope.declare(texts.text(identifier), "notInferredLambdaParameter"));
         return super.visitLambdaParameters(ctx);
     }
 
@@ -618,7 +537,7 @@ class JUnit4to5TranslatorFirstPass extends BaseJUnit4To5Pass {
         if (ctx.DOT() != null) {
             maybeTestNameRuleMethodCall(ctx)
                 .ifPresent(methodCall -> {
-                    if (!"getMethodName".equals(methodCall.identifier().getText())) {
+                    if (!texts.equals(methodCall.identifier(), "getMethodName")) {
                         throw new IllegalStateException(
                             "Unexpected test name rule method call: " + methodCall.getText());
                     }
@@ -661,7 +580,7 @@ class JUnit4to5TranslatorFirstPass extends BaseJUnit4To5Pass {
 
     private Optional<JavaParser.MethodCallContext> maybeTestNameRuleMethodCall(JavaParser.ExpressionContext ctx) {
         return Optional.of(ctx.expression(0))
-            .filter(e -> TEST_NAME_RULE.equals(currentScope.resolve(e.getText())))
+            .filter(e -> TEST_NAME_RULE.equals(resolve(e)))
             .map(__ -> ctx.methodCall());
     }
 
@@ -669,35 +588,39 @@ class JUnit4to5TranslatorFirstPass extends BaseJUnit4To5Pass {
         return Optional.of(ctx.expression(0))
             .map(JavaParser.ExpressionContext::primary)
             .filter(p -> p.THIS() != null && ctx.identifier() != null)
-            .map(__ -> "this." + ctx.identifier().getText());
+            .map(__ -> "this." + texts.text(ctx.identifier()));
     }
 
     private Optional<JavaParser.ExpressionContext> maybeOldJUnitAssertCall(JavaParser.ExpressionContext ctx) {
         return Optional.ofNullable(ctx.expression(0))
-            .filter(e -> "Assert".equals(e.getText()));
+            .filter(e -> texts.equals(e, "Assert"));
     }
 
     private boolean isTestUtilDependencyCall(JavaParser.ExpressionContext ctx) {
-        return Optional.ofNullable(ctx.expression(0).getText())
-            .map(currentScope::resolve)
+        return Optional.ofNullable(resolve(ctx.expression(0)))
             .filter(v -> {
-                String methodName = TEST_UTIL_DEPENDENCY_CALLS.get(v);
+                String methodName = rules.testUtilCalls().get(v);
                 return methodName != null && methodName.equals(getMethodCallIdentifier(ctx.methodCall()));
             })
             .isPresent();
     }
 
     private boolean isTestUtilStaticCall(JavaParser.ExpressionContext ctx) {
-        return Optional.ofNullable(ctx.expression(0).getText())
-            .filter(v -> {
-                String methodName = TEST_UTIL_STATIC_LIBS_CALLS.get(v);
-                return methodName != null && methodName.equals(getMethodCallIdentifier(ctx.methodCall()));
-            })
-            .isPresent();
+        String className = texts.nameOf(ctx.expression(0));
+        String methodName = className != null ? rules.testUtilStaticCalls().get(className) : null;
+        return methodName != null && methodName.equals(getMethodCallIdentifier(ctx.methodCall()));
+    }
+
+    /**
+     * Resolves the variable an expression names, without building the text of other expressions.
+     */
+    private String resolve(JavaParser.ExpressionContext ctx) {
+        String name = texts.nameOf(ctx);
+        return name != null ? currentScope.resolve(name) : null;
     }
 
     private boolean isTestUtilTypeCreator(JavaParser.CreatorContext ctx) {
-        return TEST_UTIL_DEPENDENCY_CALLS.containsKey(ctx.createdName().getText());
+        return rules.testUtilCalls().containsKey(texts.text(ctx.createdName()));
     }
 
     private Optional<List<JavaParser.ExpressionContext>> maybeTestUtilArguments(
@@ -708,8 +631,7 @@ class JUnit4to5TranslatorFirstPass extends BaseJUnit4To5Pass {
             .map(JavaParser.ExpressionListContext::expression)
             .filter(args -> {
                 if (args.size() == 2) {
-                    String testNameRule = args.get(1).getText();
-                    return TEST_NAME_RULE.equals(currentScope.resolve(testNameRule));
+                    return TEST_NAME_RULE.equals(resolve(args.get(1)));
                 }
                 return false;
             });
@@ -731,13 +653,13 @@ class JUnit4to5TranslatorFirstPass extends BaseJUnit4To5Pass {
 
     private String getMethodCallIdentifier(JavaParser.MethodCallContext ctx) {
         return Optional.ofNullable(ctx.identifier())
-            .map(RuleContext::getText)
+            .map(texts::text)
             .orElse(null);
     }
 
     @Override
     public Void visitMethodDeclaration(JavaParser.MethodDeclarationContext ctx) {
-        currentScope = new NestedScope(currentScope, METHOD_SCOPE);
+        currentScope = currentScope.nested(METHOD_SCOPE);
         hasStartedMethodTranslations = true;
         if (dataProviderSourceAnnotation != null) {
             var formalParameters = FormalParameters.get(ctx.formalParameters());
@@ -790,7 +712,7 @@ class JUnit4to5TranslatorFirstPass extends BaseJUnit4To5Pass {
 
                 String annotationValue = Optional.ofNullable(dataProviderSourceAnnotation.elementValuePairs())
                     .map(elementValue -> rewriter.getText(elementValue.elementValuePair().stream()
-                        .filter(v -> "value".equals(v.identifier().getText()))
+                        .filter(v -> texts.equals(v.identifier(), "value"))
                         .findFirst().orElseThrow(() ->
                             new IllegalStateException("No value element found on annotation: "
                                                       + dataProviderSourceAnnotation.getText()))
@@ -814,13 +736,13 @@ class JUnit4to5TranslatorFirstPass extends BaseJUnit4To5Pass {
 
     @Override
     public Void visitFormalParameter(JavaParser.FormalParameterContext ctx) {
-        currentScope.declare(ctx.variableDeclaratorId().getText(), TypeResolver.resolve(ctx.typeType()));
+        currentScope.declare(texts.text(ctx.variableDeclaratorId()), TypeResolver.resolve(ctx.typeType()));
         return super.visitFormalParameter(ctx);
     }
 
     @Override
     public Void visitLastFormalParameter(JavaParser.LastFormalParameterContext ctx) {
-        currentScope.declare(ctx.variableDeclaratorId().getText(), TypeResolver.resolve(ctx.typeType()));
+        currentScope.declare(texts.text(ctx.variableDeclaratorId()), TypeResolver.resolve(ctx.typeType()));
         return super.visitLastFormalParameter(ctx);
     }
 
@@ -830,7 +752,7 @@ class JUnit4to5TranslatorFirstPass extends BaseJUnit4To5Pass {
         if (addSetupRuleCall) {
             setupRuleCalls.addAll(
                 metadataTable.get(fullyQualifiedName)
-                    .streamRules(SETUP_RULES)
+                    .streamRules(setupRules)
                     .map(JUnit4to5TranslatorFirstPass::buildSetupRuleCall)
                     .toList());
             isTranslatingBeforeMethod = false;
@@ -856,7 +778,11 @@ class JUnit4to5TranslatorFirstPass extends BaseJUnit4To5Pass {
             rewriter.insertBefore(ctx.block().stop, after);
             expectedTestAnnotationClause = null;
         }
-        super.visitMethodBody(ctx);
+        // bodies mentioning no test name rule, assertion or nested declaration have nothing to translate, and the
+        // symbols they declare go out of scope with them
+        if (!setupRuleCalls.isEmpty() || tokenIndex.mentionsAny(ctx, methodBodyTriggers)) {
+            super.visitMethodBody(ctx);
+        }
         if (addSetupRuleCall && !setupRuleCalls.isEmpty()) {
             String setupRuleCallStmt = hiddenTokens.maybeNextAs(ctx.block().LBRACE().getSymbol(), "\n\n")
                 .map(__ -> setupRuleCalls.stream().map(setupRuleCall ->
@@ -883,11 +809,11 @@ class JUnit4to5TranslatorFirstPass extends BaseJUnit4To5Pass {
             .ifPresent(this::replaceOldTestNameRuleSignature);
         Optional<JavaParser.MethodCallContext> maybeAssertEquals = Optional.of(ctx)
             .filter(methodCall -> methodCall.identifier() != null)
-            .filter(methodCall -> "assertEquals".equals(methodCall.identifier().getText()));
+            .filter(methodCall -> texts.equals(methodCall.identifier(), "assertEquals"));
         maybeAssertEquals
             .filter(ae -> {
                 var arguments = ae.arguments().expressionList().expression();
-                return arguments.size() == 3 && arguments.get(0).getText().startsWith("\"");
+                return arguments.size() == 3 && texts.startsWith(arguments.get(0), "\"");
             })
             .ifPresent(ae -> {
                 var expressionList = ctx.arguments().expressionList();
@@ -907,7 +833,7 @@ class JUnit4to5TranslatorFirstPass extends BaseJUnit4To5Pass {
         }
         if (hasAssumeTrueTranslation) {
             Optional.ofNullable(ctx.identifier())
-                .filter(id -> "assumeTrue".equals(id.getText()))
+                .filter(id -> texts.equals(id, "assumeTrue"))
                 .ifPresent(__ -> {
                     var arguments = ctx.arguments().expressionList().expression();
                     if (arguments.size() != 2) {
@@ -930,11 +856,11 @@ class JUnit4to5TranslatorFirstPass extends BaseJUnit4To5Pass {
         var arguments = expressionList.expression();
         if (arguments.size() >= 2) {
             arguments.stream()
-                .filter(arg -> TEST_NAME_RULE.equals(currentScope.resolve(arg.getText())))
+                .filter(arg -> TEST_NAME_RULE.equals(resolve(arg)))
                 .findFirst()
                 .ifPresent(testNameRuleArg -> {
                     int indexOf = arguments.indexOf(testNameRuleArg);
-                    if (indexOf > 0 && CLASS_ACCESS.contains(arguments.get(indexOf - 1).getText())) {
+                    if (indexOf > 0 && texts.in(arguments.get(indexOf - 1), rules.classAccess())) {
                         removeArgument(
                             expressionList, arguments, indexOf - 1);
                     }
@@ -944,7 +870,7 @@ class JUnit4to5TranslatorFirstPass extends BaseJUnit4To5Pass {
 
     @Override
     public Void visitBlock(JavaParser.BlockContext ctx) {
-        currentScope = new NestedScope(currentScope);
+        currentScope = currentScope.nested();
         super.visitBlock(ctx);
         currentScope = currentScope.enclosing();
         return null;
@@ -952,12 +878,17 @@ class JUnit4to5TranslatorFirstPass extends BaseJUnit4To5Pass {
 
     @Override
     public Void visitStatement(JavaParser.StatementContext ctx) {
-        setupRuleCalls.remove(ctx.getText());
+        if (!setupRuleCalls.isEmpty()) {
+            setupRuleCalls.stream()
+                .filter(setupRuleCall -> texts.equals(ctx, setupRuleCall))
+                .findFirst()
+                .ifPresent(setupRuleCalls::remove);
+        }
 
         boolean shouldCreateNestedScope = Stream.of(ctx.FOR())
             .anyMatch(Objects::nonNull);
         if (shouldCreateNestedScope) {
-            currentScope = new NestedScope(currentScope);
+            currentScope = currentScope.nested();
         }
         super.visitStatement(ctx);
         if (shouldCreateNestedScope) {
@@ -968,7 +899,7 @@ class JUnit4to5TranslatorFirstPass extends BaseJUnit4To5Pass {
 
     @Override
     public Void visitEnhancedForControl(JavaParser.EnhancedForControlContext ctx) {
-        currentScope.declare(ctx.variableDeclaratorId().getText(), TypeResolver.resolve(ctx.typeType()));
+        currentScope.declare(texts.text(ctx.variableDeclaratorId()), TypeResolver.resolve(ctx.typeType()));
         return super.visitEnhancedForControl(ctx);
     }
 
@@ -976,11 +907,11 @@ class JUnit4to5TranslatorFirstPass extends BaseJUnit4To5Pass {
     public Void visitLocalVariableDeclaration(JavaParser.LocalVariableDeclarationContext ctx) {
         Optional.ofNullable(ctx.VAR())
             .ifPresentOrElse(
-                v -> currentScope.declare(ctx.identifier().getText(), v.getText()),
+                v -> currentScope.declare(texts.text(ctx.identifier()), v.getText()),
                 () -> {
                     String type = TypeResolver.resolve(ctx.typeType());
                     for (var varDeclarator : ctx.variableDeclarators().variableDeclarator()) {
-                        currentScope.declare(varDeclarator.variableDeclaratorId().getText(), type);
+                        currentScope.declare(texts.text(varDeclarator.variableDeclaratorId()), type);
                     }
                 });
         return super.visitLocalVariableDeclaration(ctx);
@@ -990,7 +921,7 @@ class JUnit4to5TranslatorFirstPass extends BaseJUnit4To5Pass {
     public Void visitPrimary(JavaParser.PrimaryContext ctx) {
         Optional.ofNullable(ctx.identifier())
             .ifPresent(id -> {
-                if (TEST_NAME_RULE.equals(currentScope.resolve(id.getText()))) {
+                if (TEST_NAME_RULE.equals(currentScope.resolve(texts.text(id)))) {
                     replaceTestNameRuleArgument(id.start, id.stop, "testInfo");
                 }
             });
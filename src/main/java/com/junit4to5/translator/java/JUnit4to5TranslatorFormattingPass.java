@@ -1,13 +1,15 @@
 package com.junit4to5.translator.java;
 
+import java.util.HashSet;
 import java.util.Optional;
-import java.util.stream.Collectors;
-import java.util.stream.Stream;
+import java.util.Set;
 
 import org.antlr.v4.runtime.BufferedTokenStream;
 import org.antlr.v4.runtime.ParserRuleContext;
 import org.antlr.v4.runtime.Token;
 import org.antlr.v4.runtime.misc.Interval;
+import org.antlr.v4.runtime.tree.ParseTree;
+import org.antlr.v4.runtime.tree.RuleNode;
 
 import antlr.java.JavaParser;
 
@@ -16,61 +18,80 @@ class JUnit4to5TranslatorFormattingPass extends BaseJUnit4To5Pass {
 
     private final Rewriter rewriter;
     private final HiddenTokens hiddenTokens;
+    private final EnclosingContexts enclosingContexts;
+    private final Set<ParserRuleContext> dirtyContexts;
+    private final int maxLineLength;
+    private int markedRegions;
 
-    private JavaParser.ImportDeclarationContext firstImport;
-    private JavaParser.ImportDeclarationContext lastImport;
     private JavaParser.ModifierContext methodDeclarationStartIndex;
-    private int upperIndentationLevel;
-    private boolean regionRequiresFormatting;
 
-    JUnit4to5TranslatorFormattingPass(BufferedTokenStream tokens, Rewriter rewriter) {
+    JUnit4to5TranslatorFormattingPass(
+        BufferedTokenStream tokens,
+        Rewriter rewriter,
+        EnclosingContexts enclosingContexts
+    ) {
         this.rewriter = rewriter;
-        hiddenTokens = new HiddenTokens(tokens);
+        hiddenTokens = rewriter.hiddenTokens();
+        this.enclosingContexts = enclosingContexts;
+        dirtyContexts = new HashSet<>();
+        maxLineLength = longestLine(tokens);
     }
 
-    @Override
-    public Void visitCompilationUnit(JavaParser.CompilationUnitContext ctx) {
-        super.visitCompilationUnit(ctx);
-
-        Interval importsInterval = new Interval(
-            firstImport.getSourceInterval().a,
-            Optional.ofNullable(lastImport)
-                .map(i -> i.getSourceInterval().b)
-                .orElseGet(() -> firstImport.getSourceInterval().b) + 1);
-        String importsRegion = rewriter.getText(importsInterval);
-        StringBuilder formattedImportsRegionSb = new StringBuilder();
-        int breakLines = 0;
-        for (String importDeclaration : importsRegion.split("\n")) {
-            boolean isBreakLine = importDeclaration.isEmpty();
-            if (isBreakLine) {
-                breakLines++;
-            } else {
-                breakLines = 0;
+    /**
+     * Length of the longest line of the file, a line of a comment or text block spanning several lines counting
+     * on its own.
+     */
+    private static int longestLine(BufferedTokenStream tokens) {
+        LineLengths.Lines lines = LineLengths.empty();
+        for (Token token : tokens.getTokens()) {
+            if (token.getType() != Token.EOF) {
+                lines = lines.then(LineLengths.Lines.of(token.getText()));
             }
-            if (breakLines < 2) {
-                formattedImportsRegionSb.append(importDeclaration).append('\n');
+        }
+        return lines.longest();
+    }
+
+    /**
+     * Visits only the rules that may need formatting. A rule requires formatting when a rewritten region falls
+     * within its interval widened by its indentation and trailing hidden text, both counted in characters but
+     * applied to token indices, so every rule holding a token less than a line length away from a rewritten region
+     * is visited.
+     */
+    @Override
+    public Void visitChildren(RuleNode node) {
+        for (int i = 0; i < node.getChildCount(); i++) {
+            ParseTree child = node.getChild(i);
+            if (child instanceof ParserRuleContext ctx && isDirty(ctx)) {
+                ctx.accept(this);
             }
         }
-        Token endTokenImportsRegion = Optional.ofNullable(lastImport)
-            .map(ParserRuleContext::getStop)
-            .orElseGet(() -> firstImport.getStop());
-        rewriter.replace(
-            firstImport.getStart(),
-            endTokenImportsRegion,
-            formattedImportsRegionSb.toString());
-        hiddenTokens.maybeNextAs(endTokenImportsRegion, "\n\n")
-            .ifPresent(rewriter::delete);
         return null;
     }
 
-    @Override
-    public Void visitImportDeclaration(JavaParser.ImportDeclarationContext ctx) {
-        if (firstImport == null) {
-            firstImport = ctx;
-        } else {
-            lastImport = ctx;
+    private boolean isDirty(ParserRuleContext ctx) {
+        if (ctx instanceof JavaParser.MemberDeclarationContext ||
+            ctx instanceof JavaParser.MethodDeclarationContext) {
+            // method declarations start at the modifiers of their parent
+            return true;
+        }
+        markedRegions = rewriter.forEachRewrittenRegionSince(
+            markedRegions,
+            (start, end) -> markDirty(start - maxLineLength, end + maxLineLength));
+        return dirtyContexts.contains(ctx);
+    }
+
+    private void markDirty(int from, int to) {
+        for (int i = Math.max(from, 0); i <= to; i++) {
+            markDirty(enclosingContexts.at(i));
+        }
+        markDirty(enclosingContexts.atOrAfter(to + 1));
+    }
+
+    private void markDirty(ParserRuleContext ctx) {
+        ParserRuleContext dirty = ctx;
+        while (dirty != null && dirtyContexts.add(dirty)) {
+            dirty = dirty.getParent();
         }
-        return super.visitImportDeclaration(ctx);
     }
 
     @Override
@@ -88,88 +109,89 @@ class JUnit4to5TranslatorFormattingPass extends BaseJUnit4To5Pass {
     public Void visitMethodDeclaration(JavaParser.MethodDeclarationContext ctx) {
         ParserRuleContext startDeclaration = Optional.ofNullable((ParserRuleContext) methodDeclarationStartIndex)
             .orElseGet(ctx::typeTypeOrVoid);
+        Token endDeclaration = Optional.ofNullable(ctx.methodBody().block())
+            .map(b -> b.LBRACE().getSymbol())
+            .orElseGet(() -> ctx.methodBody().SEMI().getSymbol());
         Interval declarationInterval = new Interval(
             startDeclaration.getSourceInterval().a,
-            Optional.ofNullable(ctx.methodBody().block())
-                .map(b -> b.LBRACE().getSourceInterval().b)
-                .orElseGet(() -> ctx.methodBody().SEMI().getSourceInterval().b));
+            endDeclaration.getTokenIndex());
         if (rewriter.requiresFormatting(declarationInterval)) {
-            String indentation = " ".repeat(
-                hiddenTokens.getIndentation(startDeclaration.getStart()) + INDENTATION_LEVEL);
-            String formattedParameters = Stream.of(
-                    Optional.of(rewriter.getText(ctx.formalParameters().getSourceInterval()))
-                        .map(s -> s.substring(1, s.length() - 1).split(","))
-                        .get())
-                .map(String::trim)
-                .collect(Collectors.joining(",%n%s".formatted(indentation)));
-            rewriter.replace(ctx.formalParameters().getStart(), ctx.formalParameters().getStop(),
-                "(%n%s%s%n%s)".formatted(indentation, formattedParameters, " ".repeat(INDENTATION_LEVEL)));
+            formatFormalParameters(startDeclaration, ctx.formalParameters(), endDeclaration);
         }
 
         return super.visitMethodDeclaration(ctx);
     }
 
+    /**
+     * Lays the formal parameters out within the line length, accounting for the rest of the declaration up to its
+     * body on the same line.
+     */
+    private void formatFormalParameters(
+        ParserRuleContext startDeclaration,
+        JavaParser.FormalParametersContext formalParameters,
+        Token endDeclaration
+    ) {
+        Interval parametersInterval = formalParameters.getSourceInterval();
+        if (!rewriter.canReplaceRendered(parametersInterval)) {
+            return;
+        }
+        int indentation = hiddenTokens.getIndentation(startDeclaration.getStart());
+        String prefix = rewriter.getText(
+            new Interval(startDeclaration.getSourceInterval().a, parametersInterval.a - 1));
+        int column = prefix.contains("\n") ?
+            prefix.length() - prefix.lastIndexOf('\n') - 1 :
+            indentation + prefix.length();
+        String suffix = rewriter.getText(new Interval(parametersInterval.b + 1, endDeclaration.getTokenIndex()));
+        String parameters = rewriter.getText(parametersInterval);
+        DocBuilder.build(parameters, JavaParser::formalParameters)
+            .map(doc -> DocLayout.layout(
+                Doc.concat(doc, Doc.text(suffix)), Rewriter.MAX_LINE_LENGTH, column, indentation))
+            .map(layout -> layout.substring(0, layout.length() - suffix.length()))
+            .filter(layout -> !layout.equals(parameters))
+            .ifPresent(layout -> rewriter.replaceRendered(
+                formalParameters.getStart(), formalParameters.getStop(), layout));
+    }
+
     @Override
     public Void visitBlockStatement(JavaParser.BlockStatementContext ctx) {
         Interval sourceInterval = ctx.getSourceInterval();
         Interval interval = new Interval(
             sourceInterval.a,
-            sourceInterval.b + hiddenTokens.getHiddenTextUntilNewLine(sourceInterval.b).length());
-        if (rewriter.requiresFormatting(interval)) {
-            upperIndentationLevel = hiddenTokens.getIndentation(ctx.getStart());
-            regionRequiresFormatting = true;
-            super.visitBlockStatement(ctx);
-            regionRequiresFormatting = false;
-        }
-        return null;
-    }
-
-    @Override
-    public Void visitExpression(JavaParser.ExpressionContext ctx) {
-        if (!regionRequiresFormatting) {
+            sourceInterval.b + hiddenTokens.getHiddenTextLengthUntilNewLine(sourceInterval.b));
+        if (!rewriter.requiresFormatting(interval)) {
             return null;
-        } else if (ctx.QUESTION() != null) {
-            String upperIndentation = buildUpperIndentation();
-            rewriter.replace(
-                ctx.QUESTION().getSymbol(),
-                "?%n%s".formatted(upperIndentation));
-            rewriter.replace(
-                ctx.COLON().getSymbol(),
-                ":%n%s".formatted(upperIndentation));
-            return null;
-        } else {
-            super.visitExpression(ctx);
-            if (regionRequiresFormatting && ctx.DOT() != null) {
-                rewriter.replace(ctx.DOT().getSymbol(), "%n%s.".formatted(buildUpperIndentation()));
-            }
+        } else if (isSimpleStatement(ctx)) {
+            formatStatement(ctx);
             return null;
         }
+        return super.visitBlockStatement(ctx);
     }
 
-    private String buildUpperIndentation() {
-        return " ".repeat(upperIndentationLevel + INDENTATION_LEVEL);
+    private static boolean isSimpleStatement(JavaParser.BlockStatementContext ctx) {
+        var statement = ctx.statement();
+        return ctx.localVariableDeclaration() != null ||
+               statement != null &&
+               (statement.statementExpression != null ||
+                statement.RETURN() != null ||
+                statement.THROW() != null ||
+                statement.ASSERT() != null ||
+                statement.YIELD() != null);
     }
 
-    @Override
-    public Void visitMethodCall(JavaParser.MethodCallContext ctx) {
-        var arguments = ctx.arguments();
-        if (arguments.expressionList() == null) {
-            return null;
+    /**
+     * Lays the statement out within the line length from its parse tree. The statement is left as it is when it
+     * does not start a line, holds comments, or when its rewritten text no longer parses as a statement.
+     */
+    private void formatStatement(JavaParser.BlockStatementContext ctx) {
+        Interval sourceInterval = ctx.getSourceInterval();
+        Optional<Integer> indentation = hiddenTokens.maybeIndentation(ctx.getStart());
+        if (indentation.isEmpty() || !rewriter.canReplaceRendered(sourceInterval)) {
+            return;
         }
-        int indentationAdded = rewriter.getText(ctx.identifier().getSourceInterval()).split(" ").length - 1;
-        String indentation = " ".repeat(hiddenTokens.maybeIndentation(ctx.identifier().getStart())
-                                            .orElse(upperIndentationLevel) + indentationAdded + INDENTATION_LEVEL);
-        Interval argumentsInterval = new Interval(
-            arguments.LPAREN().getSymbol().getTokenIndex() + 1,
-            arguments.RPAREN().getSymbol().getTokenIndex() - 1);
-        String formattedArguments = Stream.of(rewriter.getText(argumentsInterval).split(","))
-            .map(String::trim)
-            .collect(Collectors.joining(",%n%s".formatted(indentation)));
-        rewriter.replace(
-            arguments.LPAREN().getSymbol(),
-            arguments.RPAREN().getSymbol(),
-            "(%n%s%s)".formatted(indentation, formattedArguments));
-        regionRequiresFormatting = false;
-        return null;
+        String statement = rewriter.getText(sourceInterval);
+        DocBuilder.build(statement, JavaParser::blockStatement)
+            .map(doc -> DocLayout.layout(doc, Rewriter.MAX_LINE_LENGTH, indentation.get(), indentation.get()))
+            .filter(layout -> !layout.equals(statement))
+            .ifPresent(layout -> rewriter.replaceRendered(ctx.getStart(), ctx.getStop(), layout));
     }
 }
@@ -7,9 +7,6 @@ import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
-import java.util.function.Function;
-import java.util.function.Predicate;
-import java.util.stream.Collectors;
 
 import org.antlr.v4.runtime.BufferedTokenStream;
 import org.antlr.v4.runtime.Token;
@@ -20,13 +17,17 @@ class JUnit4to5TranslatorSecondPass extends BaseJUnit4To5Pass {
     private static final List<String> INSTANCE_ACCESSOR = List.of("super", "this");
 
     private final Rewriter rewriter;
-    private final HiddenTokens hiddenTokens;
     private final MetadataTable metadataTable;
+    private final Imports imports;
+    private final TokenTexts texts;
     private final ParameterAdder parameterAdder;
     private final Set<JavaParser.MethodDeclarationContext> testInfoUsageMethods;
     private final Map<JavaParser.MethodDeclarationContext, List<Token>> testInfoUsageMethodsTokensProcessed;
 
+    private final TokenIndex tokenIndex;
+
     private Scope currentScope;
+    private Set<String> testInfoUsageNames;
     private String packageDeclaration;
     private String fullyQualifiedName;
     private boolean isFirstLevelMethodCall;
@@ -34,19 +35,24 @@ class JUnit4to5TranslatorSecondPass extends BaseJUnit4To5Pass {
     JUnit4to5TranslatorSecondPass(
         BufferedTokenStream tokens,
         Rewriter rewriter,
-        MetadataTable metadataTable
+        MetadataTable metadataTable,
+        Imports imports,
+        TokenIndex tokenIndex
     ) {
         this.rewriter = rewriter;
-        hiddenTokens = new HiddenTokens(tokens);
         this.metadataTable = metadataTable;
-        parameterAdder = new ParameterAdder(rewriter, tokens);
+        this.imports = imports;
+        texts = new TokenTexts(tokens);
+        parameterAdder = new ParameterAdder(rewriter);
         testInfoUsageMethods = new HashSet<>();
         testInfoUsageMethodsTokensProcessed = new HashMap<>();
+        this.tokenIndex = tokenIndex;
     }
 
     @Override
     public Void visitCompilationUnit(JavaParser.CompilationUnitContext ctx) {
-        currentScope = new GlobalScope();
+        currentScope = ScopeStack.global();
+        testInfoUsageNames = null;
         super.visitCompilationUnit(ctx);
         if (fullyQualifiedName == null) {
             return null;
@@ -75,80 +81,22 @@ class JUnit4to5TranslatorSecondPass extends BaseJUnit4To5Pass {
                 }
             });
 
-            Map<String, List<String>> importsPerPrefix = buildImportsPerPrefix(metadata.getAddedImports());
-            importsPerPrefix.forEach((prefix, imports) ->
-                insertImportsDeclarations(
-                    ctx,
-                    imports,
-                    d -> d.qualifiedName().getText().startsWith(prefix),
-                    "import %s;"::formatted));
-
-            Map<String, List<String>> staticImportsPerPrefix = buildImportsPerPrefix(metadata.getStaticAddedImports());
-            staticImportsPerPrefix.forEach((prefix, imports) ->
-                insertImportsDeclarations(
-                    ctx,
-                    imports,
-                    d -> d.STATIC() != null && d.qualifiedName().getText().startsWith(prefix),
-                    "import static %s;"::formatted));
-
-            hiddenTokens.maybePreviousAs(ctx.typeDeclaration(0).getStart(), "\n")
-                .ifPresent(beforeType -> rewriter.insertAfter(beforeType, "\n"));
+            imports.addCollected(metadata);
         }
 
         return null;
     }
 
-    private Map<String, List<String>> buildImportsPerPrefix(Set<String> imports) {
-        return imports.stream()
-            .collect(Collectors.groupingBy(name -> {
-                String[] parts = name.split("\\.");
-                StringBuilder prefixSb = new StringBuilder();
-                for (int i = 0; i < 2; i++) {
-                    prefixSb.append(parts[i]).append(".");
-                }
-                return prefixSb.toString();
-            }));
-    }
-
-    private void insertImportsDeclarations(
-        JavaParser.CompilationUnitContext ctx,
-        List<String> imports,
-        Predicate<JavaParser.ImportDeclarationContext> prefixPredicate,
-        Function<String, String> importDeclarationFn
-    ) {
-        var importDeclarations = ctx.importDeclaration();
-        var prefixOccurrences = importDeclarations.stream()
-            .filter(prefixPredicate)
-            .toList();
-        var firstOccurrence = prefixOccurrences.isEmpty() ?
-            ctx.importDeclaration(0) :
-            prefixOccurrences.get(0);
-        String addedImportDeclarations = imports.stream()
-            .map(importDeclarationFn)
-            .collect(Collectors.joining(System.lineSeparator()));
-
-        StringBuilder insertionSb = new StringBuilder();
-        if (prefixOccurrences.isEmpty()) {
-            insertionSb.append(System.lineSeparator());
-        }
-        insertionSb
-            .append(System.lineSeparator())
-            .append(addedImportDeclarations)
-            .append(System.lineSeparator());
-
-        rewriter.insertAfter(firstOccurrence.stop, insertionSb.toString());
-    }
-
     @Override
     public Void visitPackageDeclaration(JavaParser.PackageDeclarationContext ctx) {
-        packageDeclaration = ctx.qualifiedName().getText();
+        packageDeclaration = texts.text(ctx.qualifiedName());
         return null;
     }
 
     @Override
     public Void visitClassDeclaration(JavaParser.ClassDeclarationContext ctx) {
         if (fullyQualifiedName == null) {
-            fullyQualifiedName = "%s.%s".formatted(packageDeclaration, ctx.identifier().getText());
+            fullyQualifiedName = "%s.%s".formatted(packageDeclaration, texts.text(ctx.identifier()));
         }
         super.visitClassDeclaration(ctx);
         return null;
@@ -156,13 +104,25 @@ class JUnit4to5TranslatorSecondPass extends BaseJUnit4To5Pass {
 
     @Override
     public Void visitMethodDeclaration(JavaParser.MethodDeclarationContext ctx) {
-        currentScope = new NestedScope(currentScope);
+        currentScope = currentScope.nested();
         currentScope.declare("method", ctx);
         super.visitMethodDeclaration(ctx);
         currentScope = currentScope.enclosing();
         return null;
     }
 
+    @Override
+    public Void visitMethodBody(JavaParser.MethodBodyContext ctx) {
+        // only calls to TestInfo usage methods and constructors are translated, so bodies without them are skipped
+        if (testInfoUsageNames == null) {
+            testInfoUsageNames = metadataTable.testInfoUsageNames(fullyQualifiedName);
+        }
+        if (tokenIndex.mentionsAny(ctx, testInfoUsageNames)) {
+            super.visitMethodBody(ctx);
+        }
+        return null;
+    }
+
     @Override
     public Void visitExpression(JavaParser.ExpressionContext ctx) {
         isFirstLevelMethodCall = isFirstLevelMethodCall(ctx);
@@ -170,14 +130,14 @@ class JUnit4to5TranslatorSecondPass extends BaseJUnit4To5Pass {
     }
 
     private boolean isFirstLevelMethodCall(JavaParser.ExpressionContext ctx) {
-        if (INSTANCE_ACCESSOR.contains(ctx.getText())) {
+        if (texts.in(ctx, INSTANCE_ACCESSOR)) {
             return true;
         }
 
         List<JavaParser.ExpressionContext> expression = ctx.expression();
         if (ctx.DOT() != null) {
             var left = expression.get(0);
-            var expr = INSTANCE_ACCESSOR.contains(left.getText()) ?
+            var expr = texts.in(left, INSTANCE_ACCESSOR) ?
                 ctx :
                 left;
             return expr.methodCall() != null;
@@ -195,7 +155,7 @@ class JUnit4to5TranslatorSecondPass extends BaseJUnit4To5Pass {
 
         Optional.ofNullable(ctx.classCreatorRest())
             .flatMap(classCreatorRest -> metadataTable.maybeTestInfoUsageConstructor(
-                fullyQualifiedName, ctx.createdName().getText(), classCreatorRest.arguments()))
+                fullyQualifiedName, texts.text(ctx.createdName()), classCreatorRest.arguments()))
             .ifPresent(testInfoUsageMethod -> {
                 setTokenProcessed(method, ctx.start);
                 parameterAdder.addAfter(
@@ -214,7 +174,7 @@ class JUnit4to5TranslatorSecondPass extends BaseJUnit4To5Pass {
             return super.visitMethodCall(ctx);
         }
 
-        metadataTable.maybeTestInfoUsageMethod(fullyQualifiedName, ctx.identifier().getText(), ctx.arguments())
+        metadataTable.maybeTestInfoUsageMethod(fullyQualifiedName, texts.text(ctx.identifier()), ctx.arguments())
             .ifPresent(testInfoUsageMethod -> {
                 setTokenProcessed(method, ctx.start);
                 parameterAdder.addAfter(
@@ -29,7 +29,7 @@ class JavaMetadataCollector extends BaseJUnit4To5Pass {
 
     @Override
     public Void visitCompilationUnit(JavaParser.CompilationUnitContext ctx) {
-        currentScope = new GlobalScope();
+        currentScope = ScopeStack.global();
         super.visitCompilationUnit(ctx);
         if (fullyQualifiedName != null) {
             metadataTable.put(fullyQualifiedName, metadataBuilder.build());
@@ -37,6 +37,10 @@ class JavaMetadataCollector extends BaseJUnit4To5Pass {
         return null;
     }
 
+    public String getFullyQualifiedName() {
+        return fullyQualifiedName;
+    }
+
     @Override
     public Void visitPackageDeclaration(JavaParser.PackageDeclarationContext ctx) {
         packageDeclaration = ctx.qualifiedName().getText();
@@ -72,7 +76,7 @@ class JavaMetadataCollector extends BaseJUnit4To5Pass {
 
     @Override
     public Void visitInterfaceDeclaration(JavaParser.InterfaceDeclarationContext ctx) {
-        currentScope = new NestedScope(currentScope);
+        currentScope = currentScope.nested();
         super.visitInterfaceDeclaration(ctx);
         currentScope = currentScope.enclosing();
         return null;
@@ -80,7 +84,7 @@ class JavaMetadataCollector extends BaseJUnit4To5Pass {
 
     @Override
     public Void visitEnumDeclaration(JavaParser.EnumDeclarationContext ctx) {
-        currentScope = new NestedScope(currentScope);
+        currentScope = currentScope.nested();
         super.visitEnumDeclaration(ctx);
         currentScope = currentScope.enclosing();
         return null;
@@ -88,7 +92,7 @@ class JavaMetadataCollector extends BaseJUnit4To5Pass {
 
     @Override
     public Void visitRecordDeclaration(JavaParser.RecordDeclarationContext ctx) {
-        currentScope = new NestedScope(currentScope);
+        currentScope = currentScope.nested();
         super.visitRecordDeclaration(ctx);
         currentScope = currentScope.enclosing();
         return null;
@@ -96,7 +100,7 @@ class JavaMetadataCollector extends BaseJUnit4To5Pass {
 
     @Override
     public Void visitClassDeclaration(JavaParser.ClassDeclarationContext ctx) {
-        currentScope = new NestedScope(currentScope, CLASS_SCOPE);
+        currentScope = currentScope.nested(CLASS_SCOPE);
         if (fullyQualifiedName == null) {
             fullyQualifiedName = "%s.%s".formatted(packageDeclaration, ctx.identifier().getText());
             if (ctx.EXTENDS() != null) {
@@ -131,7 +135,7 @@ class JavaMetadataCollector extends BaseJUnit4To5Pass {
 
     @Override
     public Void visitConstructorDeclaration(JavaParser.ConstructorDeclarationContext ctx) {
-        currentScope = new NestedScope(currentScope);
+        currentScope = currentScope.nested();
         super.visitConstructorDeclaration(ctx);
         currentScope = currentScope.enclosing();
         return null;
@@ -141,7 +145,7 @@ class JavaMetadataCollector extends BaseJUnit4To5Pass {
     public Void visitCreator(JavaParser.CreatorContext ctx) {
         Optional<JavaParser.ClassBodyContext> maybeAnonymousClassCreator = Optional.ofNullable(ctx.classCreatorRest())
             .map(JavaParser.ClassCreatorRestContext::classBody);
-        maybeAnonymousClassCreator.ifPresent(__ -> currentScope = new NestedScope(currentScope));
+        maybeAnonymousClassCreator.ifPresent(__ -> currentScope = currentScope.nested());
         super.visitCreator(ctx);
         maybeAnonymousClassCreator.ifPresent(__ -> currentScope = currentScope.enclosing());
         return null;
@@ -149,7 +153,7 @@ class JavaMetadataCollector extends BaseJUnit4To5Pass {
 
     @Override
     public Void visitLambdaExpression(JavaParser.LambdaExpressionContext ctx) {
-        currentScope = new NestedScope(currentScope);
+        currentScope = currentScope.nested();
         super.visitLambdaExpression(ctx);
         currentScope = currentScope.enclosing();
         return null;
@@ -164,7 +168,7 @@ class JavaMetadataCollector extends BaseJUnit4To5Pass {
 
     @Override
     public Void visitExpression(JavaParser.ExpressionContext ctx) {
-        if (ctx.DOT() != null && ctx.methodCall() != null) {
+        if (ctx.DOT() != null && ctx.methodCall() != null && TokenTexts.isQualifiedName(ctx.expression(0))) {
             getPackageResolver()
                 .resolveType(ctx.expression(0).getText())
                 .ifPresent(type -> {
@@ -208,7 +212,7 @@ class JavaMetadataCollector extends BaseJUnit4To5Pass {
 
     @Override
     public Void visitMethodDeclaration(JavaParser.MethodDeclarationContext ctx) {
-        currentScope = new NestedScope(currentScope);
+        currentScope = currentScope.nested();
         super.visitMethodDeclaration(ctx);
         currentScope = currentScope.enclosing();
         if (addTestInfoArgumentToMethod) {
@@ -232,7 +236,7 @@ class JavaMetadataCollector extends BaseJUnit4To5Pass {
 
     @Override
     public Void visitBlock(JavaParser.BlockContext ctx) {
-        currentScope = new NestedScope(currentScope);
+        currentScope = currentScope.nested();
         super.visitBlock(ctx);
         currentScope = currentScope.enclosing();
         return null;
@@ -243,7 +247,7 @@ class JavaMetadataCollector extends BaseJUnit4To5Pass {
         boolean shouldCreateNestedScope = Stream.of(ctx.FOR())
             .anyMatch(Objects::nonNull);
         if (shouldCreateNestedScope) {
-            currentScope = new NestedScope(currentScope);
+            currentScope = currentScope.nested();
         }
         super.visitStatement(ctx);
         if (shouldCreateNestedScope) {
@@ -1,6 +1,5 @@
 package com.junit4to5.translator.java;
 
-import java.util.Objects;
 import java.util.Optional;
 
 import antlr.java.JavaParser;
@@ -17,7 +16,7 @@ class JavaPublicClassesFinder extends BaseJUnit4To5Pass {
 
     @Override
     public Void visitCompilationUnit(JavaParser.CompilationUnitContext ctx) {
-        currentScope = new GlobalScope();
+        currentScope = ScopeStack.global();
         return super.visitCompilationUnit(ctx);
     }
 
@@ -33,7 +32,7 @@ class JavaPublicClassesFinder extends BaseJUnit4To5Pass {
         if (isAtMainClassScope) {
             return null;
         }
-        currentScope = new NestedScope(currentScope);
+        currentScope = currentScope.nested();
         fullyQualifiedName = "%s.%s".formatted(packageDeclaration, ctx.identifier().getText());
         crossReferences.addType(fullyQualifiedName);
         super.visitClassDeclaration(ctx);
@@ -47,9 +46,7 @@ class JavaPublicClassesFinder extends BaseJUnit4To5Pass {
             .ifPresent(memberDeclaration -> {
                 boolean isAtMainClassScope = currentScope.depth() == 2;
                 if (isAtMainClassScope && memberDeclaration.methodDeclaration() != null) {
-                    maybePublicToken(ctx.modifier().stream()
-                        .map(JavaParser.ModifierContext::classOrInterfaceModifier)
-                        .filter(Objects::nonNull))
+                    maybePublicToken(ctx)
                         .ifPresent(__ -> crossReferences.addMethod(
                             fullyQualifiedName,
                             memberDeclaration.methodDeclaration().identifier().getText(),
@@ -0,0 +1,241 @@
+package com.junit4to5.translator.java;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.TreeMap;
+import java.util.function.Function;
+
+/**
+ * Append-only log of the files whose output is final, each with the SHA-256 hashes of its input and of its output
+ * and the milliseconds it took, under a header fingerprinting the inputs and the settings of the run. A run
+ * relaunched over the same inputs and settings skips the files of the log whose output is still the logged one; any
+ * other run starts a new log, only keeping the past timings of the old one to estimate the cost of the files. As the
+ * inputs are left untouched, the metadata a resumed run collects again is the one the logged files were translated
+ * with.
+ * <p>
+ * Completed files are logged at checkpoints, right after the sink made their outputs final, so a crash loses at
+ * most the files completed since the last checkpoint.
+ */
+final class Journal implements Closeable {
+    private static final int CHECKPOINT_INTERVAL = 100;
+    private static final String HEADER = "run ";
+    private static final Journal NONE = new Journal(null, Map.of(), Map.of(), Map.of(), __ -> null);
+
+    private final FileChannel channel;
+    private final Map<String, String> inputHashes;
+    private final Map<String, String> loggedOutputHashes;
+    private final Map<String, Long> pastMillis;
+    private final Function<String, Path> targets;
+    private final Map<String, Long> pendingFiles;
+
+    private Journal(
+        FileChannel channel,
+        Map<String, String> inputHashes,
+        Map<String, String> loggedOutputHashes,
+        Map<String, Long> pastMillis,
+        Function<String, Path> targets
+    ) {
+        this.channel = channel;
+        this.inputHashes = inputHashes;
+        this.loggedOutputHashes = loggedOutputHashes;
+        this.pastMillis = pastMillis;
+        this.targets = targets;
+        pendingFiles = new LinkedHashMap<>();
+    }
+
+    /**
+     * A journal logging nothing, for runs without one.
+     */
+    static Journal none() {
+        return NONE;
+    }
+
+    /**
+     * Opens the journal at the given path, resuming its log when it was written for the same inputs and settings.
+     *
+     * @param inputFiles the input files by kind
+     * @param targets the file each input file is translated into
+     */
+    static Journal open(
+        Path path,
+        Map<String, List<String>> inputFiles,
+        List<String> settings,
+        Function<String, Path> targets
+    ) throws IOException {
+        Map<String, String> inputHashes = new LinkedHashMap<>();
+        MessageDigest fingerprint = sha256();
+        for (String setting : settings) {
+            fingerprint.update((setting + "\n").getBytes(StandardCharsets.UTF_8));
+        }
+        for (var kindAndFiles : new TreeMap<>(inputFiles).entrySet()) {
+            for (String inputFile : kindAndFiles.getValue()) {
+                if (targets.apply(inputFile).equals(Path.of(inputFile).toAbsolutePath().normalize())) {
+                    // the inputs must stay as they were for the metadata of a resumed run to be the same
+                    throw new IllegalArgumentException(
+                        "A journal needs the outputs apart from the inputs: " + inputFile);
+                }
+                String inputHash = hash(Path.of(inputFile));
+                inputHashes.put(inputFile, inputHash);
+                String line = "%s %s %s%n".formatted(kindAndFiles.getKey(), inputHash, inputFile);
+                fingerprint.update(line.getBytes(StandardCharsets.UTF_8));
+            }
+        }
+        String header = HEADER + HexFormat.of().formatHex(fingerprint.digest());
+
+        Map<String, String> loggedOutputHashes = new HashMap<>();
+        Map<String, Long> pastMillis = new HashMap<>();
+        boolean resumes = Files.exists(path) && readLog(path, header, loggedOutputHashes, pastMillis);
+        FileChannel channel = resumes ?
+            FileChannel.open(path, StandardOpenOption.WRITE, StandardOpenOption.APPEND) :
+            FileChannel.open(
+                path,
+                StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.WRITE);
+        Journal journal = new Journal(channel, inputHashes, loggedOutputHashes, pastMillis, targets);
+        if (!resumes) {
+            journal.append(header + "\n");
+        }
+        return journal;
+    }
+
+    /**
+     * Reads the timings of the completed files of the log and, when its header matches, their output hashes, a torn
+     * last line being ignored.
+     *
+     * @return whether the header matches
+     */
+    private static boolean readLog(
+        Path path,
+        String header,
+        Map<String, String> loggedOutputHashes,
+        Map<String, Long> pastMillis
+    ) throws IOException {
+        try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            boolean resumes = header.equals(reader.readLine());
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] fields = line.split(" ", 4);
+                if (fields.length == 4 && !fields[2].isEmpty() && fields[2].chars().allMatch(Character::isDigit)) {
+                    pastMillis.put(fields[3], Long.parseLong(fields[2]));
+                    if (resumes) {
+                        loggedOutputHashes.put(fields[3], fields[1]);
+                    }
+                }
+            }
+            return resumes;
+        }
+    }
+
+    public int loggedFiles() {
+        return loggedOutputHashes.size();
+    }
+
+    /**
+     * The milliseconds the file took when a previous run logged it, whether or not this run resumes that log.
+     */
+    public OptionalLong maybePastMillis(String inputFile) {
+        Long millis = pastMillis.get(inputFile);
+        return millis != null ? OptionalLong.of(millis) : OptionalLong.empty();
+    }
+
+    /**
+     * Tells whether a previous run over the same inputs logged the file and its output was not touched since.
+     */
+    public boolean isFinal(String inputFile) throws IOException {
+        String loggedOutputHash = loggedOutputHashes.get(inputFile);
+        if (loggedOutputHash == null) {
+            return false;
+        }
+        Path target = targets.apply(inputFile);
+        return Files.exists(target) && loggedOutputHash.equals(hash(target));
+    }
+
+    /**
+     * Records that the file was translated, logging it at the next checkpoint once its output is final.
+     *
+     * @param cost the time the file took
+     */
+    public synchronized void completed(String inputFile, Duration cost, OutputSink outputSink) throws IOException {
+        if (this == NONE) {
+            return;
+        }
+        pendingFiles.put(inputFile, cost.toMillis());
+        if (pendingFiles.size() >= CHECKPOINT_INTERVAL) {
+            outputSink.commit();
+            checkpoint();
+        }
+    }
+
+    /**
+     * Logs the completed files, whose outputs the sink must have made final.
+     */
+    public synchronized void checkpoint() throws IOException {
+        if (pendingFiles.isEmpty()) {
+            return;
+        }
+        StringBuilder lines = new StringBuilder();
+        for (var fileAndMillis : pendingFiles.entrySet()) {
+            String inputFile = fileAndMillis.getKey();
+            lines.append("%s %s %d %s%n".formatted(
+                inputHashes.get(inputFile),
+                hash(targets.apply(inputFile)),
+                fileAndMillis.getValue(),
+                inputFile));
+        }
+        pendingFiles.clear();
+        append(lines.toString());
+    }
+
+    private void append(String text) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(text.getBytes(StandardCharsets.UTF_8));
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        channel.force(false);
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (channel != null) {
+            channel.close();
+        }
+    }
+
+    static String hash(Path file) throws IOException {
+        MessageDigest digest = sha256();
+        byte[] buffer = new byte[8192];
+        try (InputStream input = Files.newInputStream(file)) {
+            int read;
+            while ((read = input.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+            }
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
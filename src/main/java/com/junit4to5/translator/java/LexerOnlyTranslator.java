@@ -0,0 +1,83 @@
+package com.junit4to5.translator.java;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.antlr.v4.runtime.BufferedTokenStream;
+import org.antlr.v4.runtime.Token;
+
+import antlr.java.JavaLexer;
+
+/**
+ * Degraded translation of the files the parser or the passes could not handle, made from the tokens alone. Only the
+ * annotations whose rules rename both their import and their usages, like the lifecycle ones, are translated, as
+ * those are safe without knowing the structure of the file; everything else is left for a manual migration.
+ */
+final class LexerOnlyTranslator {
+    private final Rewriter rewriter;
+    private final TranslationRules rules;
+
+    LexerOnlyTranslator(Rewriter rewriter, TranslationRules rules) {
+        this.rewriter = rewriter;
+        this.rules = rules;
+    }
+
+    public void translate(BufferedTokenStream tokens) {
+        List<Token> words = new ArrayList<>();
+        for (Token token : tokens.getTokens()) {
+            if (token.getChannel() == Token.DEFAULT_CHANNEL && token.getType() != Token.EOF) {
+                words.add(token);
+            }
+        }
+        Map<String, String> renamedAnnotations = new HashMap<>();
+        for (int i = 0; i < words.size(); i++) {
+            if (words.get(i).getType() == JavaLexer.IMPORT) {
+                i = translateImport(words, i + 1, renamedAnnotations);
+            }
+        }
+        for (int i = 0; i + 1 < words.size(); i++) {
+            Token name = words.get(i + 1);
+            boolean isQualified = i + 2 < words.size() && words.get(i + 2).getType() == JavaLexer.DOT;
+            if (words.get(i).getType() == JavaLexer.AT && !isQualified) {
+                String replacement = renamedAnnotations.get(name.getText());
+                if (replacement != null) {
+                    rewriter.replace(words.get(i), name, replacement);
+                }
+            }
+        }
+    }
+
+    /**
+     * Renames the import starting at the given word when its rule and the rule of the annotation it imports agree
+     * on the new simple name.
+     *
+     * @return the index of the last word of the import
+     */
+    private int translateImport(List<Token> words, int from, Map<String, String> renamedAnnotations) {
+        int end = from;
+        StringBuilder importName = new StringBuilder();
+        while (end < words.size() && words.get(end).getType() != JavaLexer.SEMI) {
+            importName.append(words.get(end).getText());
+            end++;
+        }
+        if (end == words.size() || end == from || words.get(from).getType() == JavaLexer.STATIC) {
+            return end;
+        }
+        Token last = words.get(end - 1);
+        String name = importName.toString();
+        String simpleName = name.substring(name.lastIndexOf('.') + 1);
+        rules.maybeImportRule(name, false)
+            .flatMap(TranslationRules.ImportRule::maybeReplacement)
+            .filter(replacement -> !replacement.equals(name))
+            .ifPresent(replacement -> rules.maybeAnnotationRule(simpleName)
+                .map(TranslationRules.AnnotationRule::replacement)
+                .filter(annotation -> annotation.equals("@" + replacement.substring(replacement.lastIndexOf('.') + 1)))
+                .ifPresent(annotation -> {
+                    rewriter.replace(words.get(from), last, replacement);
+                    renamedAnnotations.put(simpleName, annotation);
+                }));
+        return end;
+    }
+}
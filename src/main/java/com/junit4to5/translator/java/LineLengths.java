@@ -0,0 +1,103 @@
+package com.junit4to5.translator.java;
+
+import java.util.Arrays;
+
+/**
+ * Line lengths of a sequence of text fragments, kept in a segment tree so the longest line over any range of
+ * fragments is known without concatenating them. Each node holds the length before its first line break, after its
+ * last line break and of the longest line in between, or -1 for the latter when it has no line break.
+ */
+final class LineLengths {
+    private static final Lines EMPTY = new Lines(0, 0, -1);
+
+    private final int leaves;
+    private final int[] heads;
+    private final int[] tails;
+    private final int[] inners;
+
+    record Lines(int head, int tail, int inner) {
+        static Lines of(String text) {
+            int firstBreak = text.indexOf('\n');
+            if (firstBreak == -1) {
+                return text.isEmpty() ? EMPTY : new Lines(text.length(), text.length(), -1);
+            }
+            int lastBreak = text.lastIndexOf('\n');
+            int inner = 0;
+            for (int lineStart = firstBreak + 1; lineStart <= lastBreak; ) {
+                int lineBreak = text.indexOf('\n', lineStart);
+                inner = Math.max(inner, lineBreak - lineStart);
+                lineStart = lineBreak + 1;
+            }
+            return new Lines(firstBreak, text.length() - lastBreak - 1, inner);
+        }
+
+        Lines then(Lines next) {
+            if (inner < 0 && next.inner < 0) {
+                return new Lines(head + next.head, head + next.head, -1);
+            } else if (next.inner < 0) {
+                return new Lines(head, tail + next.head, inner);
+            } else if (inner < 0) {
+                return new Lines(head + next.head, next.tail, next.inner);
+            }
+            return new Lines(head, next.tail, Math.max(Math.max(inner, next.inner), tail + next.head));
+        }
+
+        int longest() {
+            return Math.max(Math.max(head, tail), inner);
+        }
+    }
+
+    LineLengths(int size) {
+        leaves = Math.max(size, 1);
+        heads = new int[2 * leaves];
+        tails = new int[2 * leaves];
+        inners = new int[2 * leaves];
+        Arrays.fill(inners, -1);
+    }
+
+    /**
+     * Sets a leaf without updating its ancestors, see {@link #update(int, int)}.
+     */
+    public void setLeaf(int index, Lines lines) {
+        int node = index + leaves;
+        heads[node] = lines.head();
+        tails[node] = lines.tail();
+        inners[node] = lines.inner();
+    }
+
+    /**
+     * Recomputes the ancestors of the leaves from {@code from} to {@code to}, level by level.
+     */
+    public void update(int from, int to) {
+        for (int lo = (from + leaves) >> 1, hi = (to + leaves) >> 1; hi > 0; lo >>= 1, hi >>= 1) {
+            for (int node = lo; node <= hi; node++) {
+                Lines combined = at(2 * node).then(at(2 * node + 1));
+                heads[node] = combined.head();
+                tails[node] = combined.tail();
+                inners[node] = combined.inner();
+            }
+        }
+    }
+
+    public Lines get(int from, int to) {
+        Lines left = EMPTY;
+        Lines right = EMPTY;
+        for (int lo = from + leaves, hi = to + leaves + 1; lo < hi; lo >>= 1, hi >>= 1) {
+            if ((lo & 1) == 1) {
+                left = left.then(at(lo++));
+            }
+            if ((hi & 1) == 1) {
+                right = at(--hi).then(right);
+            }
+        }
+        return left.then(right);
+    }
+
+    private Lines at(int node) {
+        return new Lines(heads[node], tails[node], inners[node]);
+    }
+
+    static Lines empty() {
+        return EMPTY;
+    }
+}
@@ -8,12 +8,19 @@ import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Stream;
 
 import antlr.java.JavaParser;
 
 class MetadataTable {
 
+    /**
+     * What the passes need to know of a class beyond its own file. The TestInfo usages of a class are read by the
+     * translation of its subclasses and added to by the passes of the class itself. A class is only translated once
+     * its base classes are, so that it sees all their usages whatever the order of the files and the number of
+     * threads; the sets are concurrent as its base classes were translated on other threads in parallel runs.
+     */
     static class Metadata {
         private final String packageDeclaration;
         private final String extendsIdentifier;
@@ -42,7 +49,7 @@ class MetadataTable {
             this.annotatedInstanceVariables = annotatedInstanceVariables;
             this.testInfoUsageConstructors = testInfoUsageConstructors;
             this.testInfoUsageMethods = testInfoUsageMethods;
-            annotatedJUnitMethods = new HashSet<>();
+            annotatedJUnitMethods = ConcurrentHashMap.newKeySet();
             staticAddedImports = new HashSet<>();
             addedImports = new HashSet<>();
         }
@@ -113,7 +120,7 @@ class MetadataTable {
             public MetadataBuilder() {
                 importDeclarations = new ArrayList<>();
                 annotatedInstanceVariables = new HashMap<>();
-                testInfoUsageMethods = new HashSet<>();
+                testInfoUsageMethods = ConcurrentHashMap.newKeySet();
             }
 
             public void setPackageDeclaration(String packageDeclaration) {
@@ -151,7 +158,7 @@ class MetadataTable {
                     importDeclarations,
                     Optional.ofNullable(instanceVariables).orElseGet(HashMap::new),
                     annotatedInstanceVariables,
-                    new HashSet<>(),
+                    ConcurrentHashMap.newKeySet(),
                     testInfoUsageMethods);
             }
         }
@@ -208,7 +215,7 @@ class MetadataTable {
                 crossReferences);
 
             metadata = packageResolver.resolveType(metadata.extendsIdentifier)
-                .map(this::get)
+                .flatMap(this::maybeGet)
                 .orElse(null);
             if (metadata != null) {
                 stream = Stream.concat(
@@ -220,6 +227,20 @@ class MetadataTable {
         return stream;
     }
 
+    /**
+     * Names of the TestInfo usage methods the class declares or inherits and of its TestInfo usage constructors,
+     * the only calls the second pass may rewrite.
+     */
+    public Set<String> testInfoUsageNames(String fullyQualifiedClassName) {
+        Set<String> names = new HashSet<>();
+        streamTestInfoUsageMethod(fullyQualifiedClassName)
+            .forEach(m -> names.add(m.identifier().getText()));
+        maybeGet(fullyQualifiedClassName)
+            .ifPresent(metadata -> metadata.testInfoUsageConstructors
+                .forEach(c -> names.add(c.identifier().getText())));
+        return names;
+    }
+
     public Optional<Metadata> maybeGet(String fullyQualifiedClassName) {
         return Optional.ofNullable(table.get(fullyQualifiedClassName));
     }
@@ -229,6 +250,20 @@ class MetadataTable {
             .orElseThrow(() -> new IllegalStateException(fullyQualifiedClassName + " not found in metadata table."));
     }
 
+    /**
+     * The name of the class the class extends, when the table holds both.
+     */
+    public Optional<String> maybeBaseClassName(String fullyQualifiedClassName) {
+        return maybeGet(fullyQualifiedClassName)
+            .filter(metadata -> metadata.extendsIdentifier != null)
+            .flatMap(metadata -> new PackageResolver(
+                    metadata.packageDeclaration,
+                    metadata.importDeclarations,
+                    crossReferences)
+                .resolveType(metadata.extendsIdentifier))
+            .filter(table::containsKey);
+    }
+
     public Optional<Metadata> getBase(String fullyQualifiedClassName) {
         return Optional.ofNullable(table.get(fullyQualifiedClassName))
             .map(metadata -> {
@@ -238,11 +273,33 @@ class MetadataTable {
                     crossReferences);
 
                 return packageResolver.resolveType(metadata.extendsIdentifier)
-                    .map(this::get)
+                    .flatMap(this::maybeGet)
                     .orElse(null);
             });
     }
 
+    /**
+     * Instance variables and TestInfo usage methods the class inherits from the base classes
+     * already present in the table.
+     */
+    public Set<String> inheritedFacts(String fullyQualifiedClassName) {
+        Set<String> facts = new HashSet<>();
+        Metadata metadata = getBase(fullyQualifiedClassName).orElse(null);
+        while (metadata != null) {
+            metadata.instanceVariables.forEach((name, type) -> facts.add("%s:%s".formatted(name, type)));
+            metadata.testInfoUsageMethods.forEach(m -> facts.add("%s(%d)".formatted(
+                m.identifier().getText(), FormalParameters.get(m.formalParameters()).size())));
+            PackageResolver packageResolver = new PackageResolver(
+                metadata.packageDeclaration,
+                metadata.importDeclarations,
+                crossReferences);
+            metadata = packageResolver.resolveType(metadata.extendsIdentifier)
+                .flatMap(this::maybeGet)
+                .orElse(null);
+        }
+        return facts;
+    }
+
     public void put(String fullyQualifiedClassName, Metadata metadata) {
         if (table.containsKey(fullyQualifiedClassName)) {
             throw new IllegalStateException(fullyQualifiedClassName + " already declared in metadata table.");
@@ -0,0 +1,45 @@
+package com.junit4to5.translator.java;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Optional;
+
+/**
+ * Writes translated files under a root directory, keeping the path they would have been written to.
+ */
+final class MirrorDirectorySink implements OutputSink {
+    private final Path root;
+    private final OutputFiles outputFiles = new OutputFiles();
+
+    MirrorDirectorySink(Path root) {
+        this.root = root;
+    }
+
+    @Override
+    public void write(Path inputPath, Path outputPath, Rewriter rewriter) throws IOException {
+        Path target = root.resolve(relative(outputPath));
+        Files.createDirectories(target.getParent());
+        outputFiles.write(inputPath, target, rewriter);
+    }
+
+    @Override
+    public Optional<Path> target(Path outputPath) {
+        return outputFiles.target(root.resolve(relative(outputPath)));
+    }
+
+    @Override
+    public void commit() throws IOException {
+        outputFiles.commit();
+    }
+
+    @Override
+    public void close() throws IOException {
+        outputFiles.close();
+    }
+
+    static Path relative(Path path) {
+        Path normalized = path.normalize();
+        return normalized.isAbsolute() ? normalized.getRoot().relativize(normalized) : normalized;
+    }
+}
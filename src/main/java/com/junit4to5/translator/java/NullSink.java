@@ -0,0 +1,21 @@
+package com.junit4to5.translator.java;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Path;
+
+/**
+ * Renders translated files and discards them, to measure the translation alone.
+ */
+final class NullSink implements OutputSink {
+    private final Writer out = Writer.nullWriter();
+
+    @Override
+    public void write(Path inputPath, Path outputPath, Rewriter rewriter) throws IOException {
+        rewriter.writeTo(out);
+    }
+
+    @Override
+    public void close() {
+    }
+}
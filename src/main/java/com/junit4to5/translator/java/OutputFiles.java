@@ -0,0 +1,93 @@
+package com.junit4to5.translator.java;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashSet;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Writes each translated file next to its target and renames it into place right away, leaving targets whose
+ * content would not change untouched. The directories of the renamed files are synced on {@link #commit()}, at the
+ * latest on {@link #close()}, each once however many of its files were renamed. Files are written concurrently when
+ * written from several threads, each target from one thread at a time.
+ */
+final class OutputFiles implements OutputSink {
+    private final Set<Path> unsyncedDirectories = new LinkedHashSet<>();
+
+    @Override
+    public void write(Path inputPath, Path outputPath, Rewriter rewriter) throws IOException {
+        Path target = target(outputPath).orElseThrow();
+        boolean targetExists = Files.exists(target);
+        if (targetExists && !rewriter.hasChanges() && Files.mismatch(inputPath, target) == -1) {
+            return;
+        }
+        Path temporaryFile = stage(target, rewriter);
+        try {
+            if (targetExists && Files.mismatch(temporaryFile, target) == -1) {
+                Files.delete(temporaryFile);
+                return;
+            }
+            Files.move(temporaryFile, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temporaryFile);
+            throw e;
+        }
+        synchronized (this) {
+            unsyncedDirectories.add(target.getParent());
+        }
+    }
+
+    @Override
+    public Optional<Path> target(Path outputPath) {
+        return Optional.of(outputPath.toAbsolutePath().normalize());
+    }
+
+    /**
+     * Writes the file next to its target, deleting it again when writing fails, so that only a crash can leave
+     * it behind, to be overwritten when the file is translated again.
+     */
+    private Path stage(Path target, Rewriter rewriter) throws IOException {
+        Path temporaryFile = target.resolveSibling("." + target.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(
+            temporaryFile,
+            StandardOpenOption.CREATE,
+            StandardOpenOption.TRUNCATE_EXISTING,
+            StandardOpenOption.WRITE)) {
+            try (ChannelTextWriter writer = ChannelTextWriter.open(channel)) {
+                rewriter.writeTo(writer);
+            }
+            channel.force(true);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temporaryFile);
+            throw e;
+        }
+        return temporaryFile;
+    }
+
+    /**
+     * Syncs every directory a file was renamed into since the last commit, making the renames durable.
+     */
+    @Override
+    public synchronized void commit() {
+        unsyncedDirectories.forEach(OutputFiles::syncDirectory);
+        unsyncedDirectories.clear();
+    }
+
+    @Override
+    public void close() {
+        commit();
+    }
+
+    private static void syncDirectory(Path directory) {
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            // not every platform allows opening a directory, the renames are still atomic there
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package com.junit4to5.translator.java;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Optional;
+
+/**
+ * Destination of translated files. Closing it completes whatever the sink deferred.
+ */
+interface OutputSink extends Closeable {
+    void write(Path inputPath, Path outputPath, Rewriter rewriter) throws IOException;
+
+    /**
+     * The file the output ends up in, for sinks writing each output to a file of its own.
+     */
+    default Optional<Path> target(Path outputPath) {
+        return Optional.empty();
+    }
+
+    /**
+     * Makes the outputs written so far final, as closing would, for sinks deferring them.
+     */
+    default void commit() throws IOException {
+    }
+}
@@ -2,20 +2,19 @@ package com.junit4to5.translator.java;
 
 import java.util.function.Supplier;
 
-import org.antlr.v4.runtime.BufferedTokenStream;
 import org.antlr.v4.runtime.Token;
 
 class ParameterAdder {
     private final Rewriter rewriter;
     private final HiddenTokens hiddenTokens;
 
-    ParameterAdder(Rewriter rewriter, BufferedTokenStream tokens) {
+    ParameterAdder(Rewriter rewriter) {
         this.rewriter = rewriter;
-        hiddenTokens = new HiddenTokens(tokens);
+        hiddenTokens = rewriter.hiddenTokens();
     }
     
     public void addBefore(Token token, boolean unique, String parameter) {
-        hiddenTokens.maybePreviousAs(token, "\n")
+        hiddenTokens.maybePreviousNewLine(token)
             .ifPresentOrElse(
                 nlToken -> rewriter.insertBefore(
                     nlToken,
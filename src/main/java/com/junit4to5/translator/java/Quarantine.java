@@ -0,0 +1,98 @@
+package com.junit4to5.translator.java;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Runs the steps of each file within the per-file time budget and sets aside the files whose step timed out or
+ * failed, so that the rest of the batch goes on. The later steps skip the files set aside, which are listed in the
+ * report at the end of the run. The steps of different files may run on different threads.
+ */
+final class Quarantine {
+    private final Duration fileBudget;
+    private final Map<String, Entry> entries;
+    private final Set<String> fallbacks;
+
+    private record Entry(String step, RuntimeException cause) {
+    }
+
+    /**
+     * @param fileBudget the time budget of each step of a file, zero for none
+     */
+    Quarantine(Duration fileBudget) {
+        this.fileBudget = fileBudget;
+        entries = new LinkedHashMap<>();
+        fallbacks = new HashSet<>();
+    }
+
+    /**
+     * Runs the step of the file unless the file is quarantined already, and quarantines it when the step exceeds
+     * the budget or fails. Input and output errors are not the file's fault and still abort the run.
+     *
+     * @return whether the step ran to completion
+     */
+    public boolean run(String inputFile, String step, Deadline.Step<IOException> action) throws IOException {
+        if (isQuarantined(inputFile)) {
+            return false;
+        }
+        try {
+            Deadline.within(fileBudget, action);
+            return true;
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } catch (RuntimeException e) {
+            quarantine(inputFile, new Entry(step, e));
+            return false;
+        }
+    }
+
+    private synchronized boolean isQuarantined(String inputFile) {
+        return entries.containsKey(inputFile);
+    }
+
+    private synchronized void quarantine(String inputFile, Entry entry) {
+        entries.put(inputFile, entry);
+    }
+
+    public synchronized List<String> files() {
+        return List.copyOf(entries.keySet());
+    }
+
+    /**
+     * Runs the degraded translation of a quarantined file within the budget, leaving the file as it is when that
+     * fails too.
+     */
+    public void fallBack(String inputFile, Deadline.Step<IOException> action) throws IOException {
+        try {
+            Deadline.within(fileBudget, action);
+            fallbacks.add(inputFile);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } catch (RuntimeException e) {
+            // the report already tells why the file is quarantined
+        }
+    }
+
+    public synchronized void report(PrintStream out) {
+        if (entries.isEmpty()) {
+            return;
+        }
+        out.printf("Quarantined %d file(s):%n", entries.size());
+        entries.forEach((inputFile, entry) -> out.printf(
+            "  %s (%s %s): %s%s%n",
+            inputFile,
+            entry.step(),
+            entry.cause() instanceof Deadline.ExceededException ? "timed out" : "failed",
+            entry.cause().getMessage() != null ?
+                entry.cause().getMessage() :
+                entry.cause().getClass().getSimpleName(),
+            fallbacks.contains(inputFile) ? " [lexer-only translation written]" : ""));
+    }
+}
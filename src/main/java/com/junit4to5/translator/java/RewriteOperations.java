@@ -0,0 +1,345 @@
+package com.junit4to5.translator.java;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+import org.antlr.v4.runtime.BufferedTokenStream;
+import org.antlr.v4.runtime.CharStream;
+import org.antlr.v4.runtime.Token;
+import org.antlr.v4.runtime.misc.Interval;
+
+/**
+ * Insert, replace and delete operations over a token stream, kept per token index.
+ * <p>
+ * Conflicts are resolved when an operation is added, following the rules ANTLR's {@code TokenStreamRewriter}
+ * applies on every rendering, so the operations never need to be reduced again and any interval is rendered
+ * in time proportional to its size.
+ */
+final class RewriteOperations {
+    private static final int NONE = -1;
+
+    private final BufferedTokenStream tokens;
+    private final int size;
+    private final String[] insertTexts;
+    private final boolean[] insertsAfter;
+    // the inserts as a replace starting at their index takes them, latest first whether inserted before or after;
+    // at the start of a replace, the inserts made since the replace, rendered ahead of its text
+    private final String[] absorbedInsertTexts;
+    private final int[] replaceStops;
+    private final String[] replaceTexts;
+    private final int[] coveringReplaces;
+    private final BitSet editedIndices;
+    private LineLengths renderedLines;
+    private LineLengths originalLines;
+
+    RewriteOperations(BufferedTokenStream tokens) {
+        this.tokens = tokens;
+        size = tokens.size();
+        insertTexts = new String[size + 1];
+        insertsAfter = new boolean[size + 1];
+        absorbedInsertTexts = new String[size + 1];
+        replaceStops = new int[size];
+        replaceTexts = new String[size];
+        coveringReplaces = new int[size];
+        editedIndices = new BitSet(size + 1);
+        Arrays.fill(replaceStops, NONE);
+        Arrays.fill(coveringReplaces, NONE);
+    }
+
+    public void insertBefore(int index, String text) {
+        insert(index, text, false);
+    }
+
+    public void insertAfter(int index, String text) {
+        insert(index + 1, text, true);
+    }
+
+    private void insert(int index, String text, boolean after) {
+        int replaceStart = index < size ? coveringReplaces[index] : NONE;
+        if (replaceStart == index) {
+            absorbedInsertTexts[index] = text + nullToEmpty(absorbedInsertTexts[index]);
+            updateRenderedLines(index, index);
+            return;
+        } else if (replaceStart != NONE) {
+            throw new IllegalArgumentException(
+                "insert op at %d within boundaries of previous replace %d..%d".formatted(
+                    index, replaceStart, replaceStops[replaceStart]));
+        }
+
+        String previous = insertTexts[index];
+        if (previous == null) {
+            insertTexts[index] = text;
+            absorbedInsertTexts[index] = text;
+        } else {
+            insertTexts[index] = insertsAfter[index] ? previous + text : text + previous;
+            absorbedInsertTexts[index] = text + absorbedInsertTexts[index];
+        }
+        insertsAfter[index] = after;
+        editedIndices.set(index);
+        updateRenderedLines(index, index);
+    }
+
+    public void replace(int from, int to, String text) {
+        if (from > to || from < 0 || to >= size) {
+            throw new IllegalArgumentException("replace: range invalid: %d..%d(size=%d)".formatted(from, to, size));
+        }
+
+        if (absorbedInsertTexts[from] != null) {
+            text = absorbedInsertTexts[from] + nullToEmpty(text);
+        }
+        Arrays.fill(insertTexts, from, to + 1, null);
+        Arrays.fill(absorbedInsertTexts, from, to + 1, null);
+        editedIndices.clear(from, to + 1);
+
+        int start = from;
+        int stop = to;
+        int previousStart = coveringReplaces[from] != NONE ? coveringReplaces[from] : nextReplaceStart(from, to);
+        while (previousStart != NONE) {
+            int previousStop = replaceStops[previousStart];
+            if (previousStart >= from && previousStop <= to) {
+                removeReplace(previousStart);
+            } else if (replaceTexts[previousStart] == null &&
+                       absorbedInsertTexts[previousStart] == null &&
+                       text == null) {
+                removeReplace(previousStart);
+                start = Math.min(start, previousStart);
+                stop = Math.max(stop, previousStop);
+            } else {
+                throw new IllegalArgumentException(
+                    "replace op boundaries of %d..%d overlap with previous %d..%d".formatted(
+                        from, to, previousStart, previousStop));
+            }
+            previousStart = nextReplaceStart(previousStart + 1, to);
+        }
+
+        replaceStops[start] = stop;
+        replaceTexts[start] = text;
+        Arrays.fill(coveringReplaces, start, stop + 1, start);
+        editedIndices.set(start);
+        updateRenderedLines(start, stop);
+    }
+
+    /**
+     * Replaces the rendering of the tokens from {@code from} to {@code to}, which already holds the text inserted
+     * before {@code from}, superseding the operations inside the range.
+     */
+    public void replaceRendered(int from, int to, String text) {
+        if (!canReplaceRendered(from, to)) {
+            throw new IllegalArgumentException(
+                "replace op boundaries of %d..%d cross a previous replace".formatted(from, to));
+        }
+        insertTexts[from] = null;
+        absorbedInsertTexts[from] = null;
+        replace(from, to, text);
+    }
+
+    /**
+     * Tells whether no replace crosses the boundaries of the range, so its rendering can be replaced as a whole.
+     */
+    public boolean canReplaceRendered(int from, int to) {
+        int startReplace = coveringReplaces[from];
+        int stopReplace = coveringReplaces[to];
+        return (startReplace == NONE || startReplace == from) &&
+               (stopReplace == NONE || replaceStops[stopReplace] <= to);
+    }
+
+    private int nextReplaceStart(int from, int to) {
+        for (int i = from; i <= to; i++) {
+            if (replaceStops[i] != NONE) {
+                return i;
+            }
+        }
+        return NONE;
+    }
+
+    private void removeReplace(int start) {
+        Arrays.fill(coveringReplaces, start, replaceStops[start] + 1, NONE);
+        replaceStops[start] = NONE;
+        replaceTexts[start] = null;
+        editedIndices.clear(start);
+    }
+
+    public void delete(int from, int to) {
+        replace(from, to, null);
+    }
+
+    /**
+     * Tells whether rendering would differ from the original tokens, without rendering anything.
+     */
+    public boolean hasChanges() {
+        for (int i = editedIndices.nextSetBit(0); i >= 0; i = editedIndices.nextSetBit(i + 1)) {
+            if (isEffective(i)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean isEffective(int index) {
+        if (index < size && replaceStops[index] != NONE) {
+            return !matchesTokens(index, replaceStops[index], replacementText(index));
+        }
+        return insertTexts[index] != null && !insertTexts[index].isEmpty();
+    }
+
+    /**
+     * The effective operations as character ranges of the original input, in input order.
+     */
+    public List<Edit> edits() {
+        CharStream input = tokens.getTokenSource().getInputStream();
+        List<Edit> edits = new ArrayList<>();
+        for (int i = editedIndices.nextSetBit(0); i >= 0; i = editedIndices.nextSetBit(i + 1)) {
+            if (!isEffective(i)) {
+                continue;
+            }
+            Token token = tokens.get(Math.min(i, size - 1));
+            int start = i < size ? token.getStartIndex() : input.size();
+            if (i < size && replaceStops[i] != NONE) {
+                int stop = tokens.get(replaceStops[i]).getStopIndex() + 1;
+                edits.add(new Edit(start, Math.max(start, stop), token.getLine(), replacementText(i)));
+            } else {
+                edits.add(new Edit(start, start, token.getLine(), insertTexts[i]));
+            }
+        }
+        return edits;
+    }
+
+    /**
+     * Replacement of the input characters from {@code start} (inclusive) to {@code stop} (exclusive), where
+     * {@code line} is the line holding {@code start}.
+     */
+    record Edit(int start, int stop, int line, String text) {}
+
+    private boolean matchesTokens(int from, int to, String text) {
+        int offset = 0;
+        for (int i = from; i <= to; i++) {
+            Token token = tokens.get(i);
+            if (token.getType() == Token.EOF) {
+                continue;
+            }
+            String tokenText = token.getText();
+            if (!text.startsWith(tokenText, offset)) {
+                return false;
+            }
+            offset += tokenText.length();
+        }
+        return offset == text.length();
+    }
+
+    public String getText(Interval interval) {
+        StringBuilder sb = new StringBuilder();
+        try {
+            render(interval, sb);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Length of the longest line {@link #getText(Interval)} would render for the interval, computed from line
+     * lengths kept up to date with every operation once first asked for.
+     */
+    public int longestLine(Interval interval) {
+        if (renderedLines == null) {
+            renderedLines = new LineLengths(size + 1);
+            for (int i = 0; i <= size; i++) {
+                renderedLines.setLeaf(i, renderedLinesAt(i));
+            }
+            renderedLines.update(0, size);
+        }
+        int start = Math.max(interval.a, 0);
+        int stop = Math.min(interval.b, size - 1);
+        LineLengths.Lines lines = LineLengths.empty();
+        if (start < size && coveringReplaces[start] != NONE && coveringReplaces[start] != start) {
+            // tokens covered by a replace starting before the interval are rendered as they are
+            int originalStop = Math.min(replaceStops[coveringReplaces[start]], stop);
+            lines = originalLines().get(start, originalStop);
+            start = originalStop + 1;
+        }
+        if (start <= stop) {
+            lines = lines.then(renderedLines.get(start, stop));
+        }
+        if (stop == size - 1) {
+            lines = lines.then(renderedLines.get(size, size));
+        }
+        return lines.longest();
+    }
+
+    private LineLengths originalLines() {
+        if (originalLines == null) {
+            originalLines = new LineLengths(size);
+            for (int i = 0; i < size; i++) {
+                originalLines.setLeaf(i, LineLengths.Lines.of(tokenText(i)));
+            }
+            originalLines.update(0, size - 1);
+        }
+        return originalLines;
+    }
+
+    private void updateRenderedLines(int from, int to) {
+        if (renderedLines != null) {
+            for (int i = from; i <= to; i++) {
+                renderedLines.setLeaf(i, renderedLinesAt(i));
+            }
+            renderedLines.update(from, to);
+        }
+    }
+
+    private LineLengths.Lines renderedLinesAt(int index) {
+        if (index == size) {
+            return LineLengths.Lines.of(nullToEmpty(insertTexts[size]));
+        } else if (replaceStops[index] != NONE) {
+            return LineLengths.Lines.of(replacementText(index));
+        } else if (coveringReplaces[index] != NONE) {
+            return LineLengths.empty();
+        }
+        return LineLengths.Lines.of(nullToEmpty(insertTexts[index])).then(LineLengths.Lines.of(tokenText(index)));
+    }
+
+    private String tokenText(int index) {
+        Token token = tokens.get(index);
+        return token.getType() != Token.EOF ? token.getText() : "";
+    }
+
+    public void render(Interval interval, Appendable out) throws IOException {
+        int start = Math.max(interval.a, 0);
+        int stop = Math.min(interval.b, size - 1);
+        int i = start;
+        while (i <= stop) {
+            if (replaceStops[i] != NONE) {
+                if (absorbedInsertTexts[i] != null) {
+                    out.append(absorbedInsertTexts[i]);
+                }
+                if (replaceTexts[i] != null) {
+                    out.append(replaceTexts[i]);
+                }
+                i = replaceStops[i] + 1;
+            } else {
+                if (insertTexts[i] != null) {
+                    out.append(insertTexts[i]);
+                }
+                Token token = tokens.get(i);
+                if (token.getType() != Token.EOF) {
+                    out.append(token.getText());
+                }
+                i++;
+            }
+        }
+        if (stop == size - 1 && insertTexts[size] != null) {
+            out.append(insertTexts[size]);
+        }
+    }
+
+    private String replacementText(int start) {
+        return nullToEmpty(absorbedInsertTexts[start]) + nullToEmpty(replaceTexts[start]);
+    }
+
+    private static String nullToEmpty(String text) {
+        return text != null ? text : "";
+    }
+}
@@ -1,59 +1,69 @@
 package com.junit4to5.translator.java;
 
-import java.util.HashSet;
-import java.util.Set;
+import java.io.IOException;
 import java.util.function.Function;
-import java.util.stream.Stream;
 
+import org.antlr.v4.runtime.BufferedTokenStream;
 import org.antlr.v4.runtime.Token;
-import org.antlr.v4.runtime.TokenStreamRewriter;
 import org.antlr.v4.runtime.misc.Interval;
 
 class Rewriter {
     static final int MAX_LINE_LENGTH = 120;
     
-    private final TokenStreamRewriter streamRewriter;
+    private final BufferedTokenStream tokens;
+    private final RewriteOperations operations;
     private final HiddenTokens hiddenTokens;
-    private final Set<Region> rewrittenRegions;
+    private final RewrittenRegions rewrittenRegions;
 
-    record Region(int start, int end) {
-        public boolean contains(Region other) {
-            return start <= other.start && other.end <= end;
-        }
+    Rewriter(BufferedTokenStream tokens, HiddenTokens hiddenTokens) {
+        this.tokens = tokens;
+        operations = new RewriteOperations(tokens);
+        this.hiddenTokens = hiddenTokens;
+        rewrittenRegions = new RewrittenRegions(tokens.size());
     }
 
-    Rewriter(TokenStreamRewriter streamRewriter, HiddenTokens hiddenTokens) {
-        this.streamRewriter = streamRewriter;
-        this.hiddenTokens = hiddenTokens;
-        rewrittenRegions = new HashSet<>();
+    public HiddenTokens hiddenTokens() {
+        return hiddenTokens;
     }
 
     public void insertBefore(Token t, String text) {
-        rewrittenRegions.add(new Region(t.getTokenIndex(), t.getTokenIndex() + 1));
-        streamRewriter.insertBefore(t, text);
+        rewrittenRegions.add(t.getTokenIndex(), t.getTokenIndex() + 1);
+        operations.insertBefore(t.getTokenIndex(), text);
     }
 
     public void insertAfter(Token t, String text) {
-        rewrittenRegions.add(new Region(t.getTokenIndex(), t.getTokenIndex() + 1));
-        streamRewriter.insertAfter(t, text);
+        rewrittenRegions.add(t.getTokenIndex(), t.getTokenIndex() + 1);
+        operations.insertAfter(t.getTokenIndex(), text);
     }
 
     public void replace(Token from, Token to, String text) {
-        rewrittenRegions.add(new Region(from.getTokenIndex(), to.getTokenIndex() + 1));
-        streamRewriter.replace(from, to, text);
+        rewrittenRegions.add(from.getTokenIndex(), to.getTokenIndex() + 1);
+        operations.replace(from.getTokenIndex(), to.getTokenIndex(), text);
     }
 
     public void replace(Token indexT, String text) {
-        rewrittenRegions.add(new Region(indexT.getTokenIndex(), indexT.getTokenIndex() + 1));
-        streamRewriter.replace(indexT, text);
+        rewrittenRegions.add(indexT.getTokenIndex(), indexT.getTokenIndex() + 1);
+        operations.replace(indexT.getTokenIndex(), indexT.getTokenIndex(), text);
+    }
+
+    public boolean canReplaceRendered(Interval interval) {
+        return operations.canReplaceRendered(interval.a, interval.b);
+    }
+
+    /**
+     * Replaces the text {@link #getText(Interval)} renders for the tokens from {@code from} to {@code to}.
+     */
+    public void replaceRendered(Token from, Token to, String text) {
+        rewrittenRegions.add(from.getTokenIndex(), to.getTokenIndex() + 1);
+        operations.replaceRendered(from.getTokenIndex(), to.getTokenIndex(), text);
     }
 
     public void delete(Token from, Token to) {
-        streamRewriter.delete(from, to);
+        operations.delete(from.getTokenIndex(), to.getTokenIndex());
     }
 
     public void delete(Token indexT) {
-        streamRewriter.delete(indexT);
+        operations.delete(indexT.getTokenIndex(), indexT.getTokenIndex());
     }
 
     public boolean deleteNextIf(
@@ -76,22 +86,34 @@ class Rewriter {
             .orElse(false);
     }
 
+    public void writeDiff(String oldName, String newName, Appendable out) throws IOException {
+        UnifiedDiff.write(oldName, newName, tokens.getTokenSource().getInputStream(), operations.edits(), out);
+    }
+
+    public boolean hasChanges() {
+        return operations.hasChanges();
+    }
+
+    public int forEachRewrittenRegionSince(int skip, RewrittenRegions.RegionConsumer consumer) {
+        return rewrittenRegions.forEachSince(skip, consumer);
+    }
+
     public String getText(Interval interval) {
-        return streamRewriter.getText(interval);
+        return operations.getText(interval);
     }
 
     public String getText() {
-        return streamRewriter.getText();
+        return operations.getText(Interval.of(0, tokens.size() - 1));
+    }
+
+    public void writeTo(Appendable out) throws IOException {
+        operations.render(Interval.of(0, tokens.size() - 1), out);
     }
     
     public boolean requiresFormatting(Interval interval) {
-        int indentation = hiddenTokens.maybeIndentation(streamRewriter.getTokenStream().get(interval.a))
-            .orElse(0);
-        Region region = new Region(interval.a - indentation, interval.b);
-        if (rewrittenRegions.stream().anyMatch(region::contains)) {
-            return Stream.of(streamRewriter.getText(new Interval(region.start(), region.end())).split("\n"))
-                .anyMatch(t -> t.length() > MAX_LINE_LENGTH);
-        }
-        return false;
+        int indentation = hiddenTokens.getIndentationOr(tokens.get(interval.a), 0);
+        int start = interval.a - indentation;
+        return rewrittenRegions.anyWithin(start, interval.b) &&
+               operations.longestLine(new Interval(start, interval.b)) > MAX_LINE_LENGTH;
     }
 }
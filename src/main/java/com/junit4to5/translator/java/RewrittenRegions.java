@@ -0,0 +1,71 @@
+package com.junit4to5.translator.java;
+
+import java.util.Arrays;
+
+/**
+ * Token regions touched by a rewrite, indexed by start token in a segment tree that keeps the smallest region end,
+ * so checking whether any region lies inside an interval takes logarithmic time. The regions are also logged in
+ * the order they were added.
+ */
+final class RewrittenRegions {
+    private final int leaves;
+    private final int[] minEnds;
+    private int[] loggedStarts = new int[16];
+    private int[] loggedEnds = new int[16];
+    private int logged;
+
+    interface RegionConsumer {
+        void accept(int start, int end);
+    }
+
+    RewrittenRegions(int size) {
+        leaves = Math.max(size, 1);
+        minEnds = new int[2 * leaves];
+        Arrays.fill(minEnds, Integer.MAX_VALUE);
+    }
+
+    public void add(int start, int end) {
+        if (logged == loggedStarts.length) {
+            loggedStarts = Arrays.copyOf(loggedStarts, 2 * logged);
+            loggedEnds = Arrays.copyOf(loggedEnds, 2 * logged);
+        }
+        loggedStarts[logged] = start;
+        loggedEnds[logged] = end;
+        logged++;
+
+        int node = start + leaves;
+        if (minEnds[node] <= end) {
+            return;
+        }
+        minEnds[node] = end;
+        for (node >>= 1; node > 0; node >>= 1) {
+            minEnds[node] = Math.min(minEnds[2 * node], minEnds[2 * node + 1]);
+        }
+    }
+
+    public boolean anyWithin(int start, int end) {
+        int from = Math.max(start, 0) + leaves;
+        int to = Math.min(end, leaves - 1) + leaves + 1;
+        int minEnd = Integer.MAX_VALUE;
+        for (; from < to; from >>= 1, to >>= 1) {
+            if ((from & 1) == 1) {
+                minEnd = Math.min(minEnd, minEnds[from++]);
+            }
+            if ((to & 1) == 1) {
+                minEnd = Math.min(minEnd, minEnds[--to]);
+            }
+        }
+        return minEnd <= end;
+    }
+
+    /**
+     * Passes the regions added after the first {@code skip} ones to the consumer and returns how many regions were
+     * added so far.
+     */
+    public int forEachSince(int skip, RegionConsumer consumer) {
+        for (int i = skip; i < logged; i++) {
+            consumer.accept(loggedStarts[i], loggedEnds[i]);
+        }
+        return logged;
+    }
+}
@@ -5,6 +5,10 @@ import java.util.Map;
 interface Scope {
     String type();
 
+    Scope nested();
+
+    Scope nested(String type);
+
     Scope enclosing();
 
     Scope enclosingFor(String type);
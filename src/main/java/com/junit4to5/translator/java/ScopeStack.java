@@ -0,0 +1,257 @@
+package com.junit4to5.translator.java;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Scopes of a visitor kept on a single stack reused by every visitor running on the same thread. Symbols live in
+ * parallel arrays, each scope owning the slice starting at its frame marker, and frames are pooled per depth, so
+ * entering a scope allocates nothing once the arrays have grown. Starting a new {@link #global()} scope resets the
+ * stack of the thread, and a scope stays valid until it is exited through {@link Scope#enclosing()}.
+ */
+final class ScopeStack {
+    private static final ThreadLocal<ScopeStack> STACKS = ThreadLocal.withInitial(ScopeStack::new);
+    private static final String THIS = "this.";
+
+    private String[] names;
+    private Object[] values;
+    private int[] hashes;
+    private int size;
+    private Frame[] frames;
+    private int top;
+
+    private ScopeStack() {
+        names = new String[64];
+        values = new Object[64];
+        hashes = new int[64];
+        frames = new Frame[16];
+        top = -1;
+    }
+
+    /**
+     * The global scope of a new visit, dropping whatever the previous visit on this thread left on the stack.
+     */
+    static Scope global() {
+        ScopeStack stack = STACKS.get();
+        stack.size = 0;
+        stack.top = -1;
+        return stack.push("global");
+    }
+
+    private Frame push(String type) {
+        int level = ++top;
+        if (level == frames.length) {
+            frames = Arrays.copyOf(frames, level * 2);
+        }
+        if (frames[level] == null) {
+            frames[level] = new Frame(level);
+        }
+        frames[level].reset(type, size);
+        return frames[level];
+    }
+
+    private void append(String name, Object value) {
+        if (size == names.length) {
+            names = Arrays.copyOf(names, size * 2);
+            values = Arrays.copyOf(values, size * 2);
+            hashes = Arrays.copyOf(hashes, size * 2);
+        }
+        names[size] = name;
+        values[size] = value;
+        hashes[size] = name.hashCode();
+        size++;
+    }
+
+    /**
+     * The hash of the name from the given offset, equal to {@code name.substring(offset).hashCode()}.
+     */
+    private static int hash(String name, int offset) {
+        int hash = 0;
+        for (int i = offset; i < name.length(); i++) {
+            hash = 31 * hash + name.charAt(i);
+        }
+        return hash;
+    }
+
+    private static boolean matches(String symbol, String name, int offset) {
+        return symbol.length() == name.length() - offset && name.startsWith(symbol, offset);
+    }
+
+    private final class Frame implements Scope {
+        private final int level;
+        private String type;
+        private int start;
+        // symbols declared while an inner scope is open, which cannot be appended to this frame's slice
+        private List<String> lateNames;
+        private List<Object> lateValues;
+
+        private Frame(int level) {
+            this.level = level;
+        }
+
+        private void reset(String type, int start) {
+            this.type = type;
+            this.start = start;
+            if (lateNames != null) {
+                lateNames.clear();
+                lateValues.clear();
+            }
+        }
+
+        private int end() {
+            return level == top ? size : frames[level + 1].start;
+        }
+
+        private int indexOf(String name, int offset, int hash) {
+            for (int i = end() - 1; i >= start; i--) {
+                if (hashes[i] == hash && matches(names[i], name, offset)) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        private int lateIndexOf(String name, int offset) {
+            if (lateNames != null) {
+                for (int i = 0; i < lateNames.size(); i++) {
+                    if (matches(lateNames.get(i), name, offset)) {
+                        return i;
+                    }
+                }
+            }
+            return -1;
+        }
+
+        private boolean contains(String name) {
+            return indexOf(name, 0, name.hashCode()) != -1 || lateIndexOf(name, 0) != -1;
+        }
+
+        @Override
+        public String type() {
+            return type;
+        }
+
+        @Override
+        public Scope nested() {
+            return nested("nested");
+        }
+
+        @Override
+        public Scope nested(String type) {
+            if (level != top) {
+                throw new IllegalStateException("Only the innermost scope can be nested: " + this);
+            }
+            return push(type);
+        }
+
+        @Override
+        public Scope enclosing() {
+            if (level != top) {
+                throw new IllegalStateException("Only the innermost scope can be exited: " + this);
+            }
+            size = start;
+            top--;
+            return level > 0 ? frames[level - 1] : null;
+        }
+
+        @Override
+        public Scope enclosingFor(String type) {
+            for (int i = level; i >= 0; i--) {
+                if (type.equals(frames[i].type)) {
+                    return frames[i];
+                }
+            }
+            return null;
+        }
+
+        @Override
+        public void declare(String name, Object value) {
+            if (contains(name)) {
+                throw new IllegalStateException("The symbol '" + name + "' is already declared.");
+            }
+            if (level == top) {
+                append(name, value);
+            } else {
+                if (lateNames == null) {
+                    lateNames = new ArrayList<>();
+                    lateValues = new ArrayList<>();
+                }
+                lateNames.add(name);
+                lateValues.add(value);
+            }
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public void declareList(String name, Object value) {
+            if (!contains(name)) {
+                declare(name, new ArrayList<>());
+            }
+            ((List<Object>) get(name)).add(value);
+        }
+
+        @Override
+        public String resolve(String name) {
+            int offset = 0;
+            while (name.startsWith(THIS, offset)) {
+                offset += THIS.length();
+            }
+            int hash = hash(name, offset);
+            for (int i = level; i >= 0; i--) {
+                Frame frame = frames[i];
+                int index = frame.indexOf(name, offset, hash);
+                if (index != -1 && values[index] != null) {
+                    return (String) values[index];
+                }
+                int lateIndex = frame.lateIndexOf(name, offset);
+                if (lateIndex != -1 && frame.lateValues.get(lateIndex) != null) {
+                    return (String) frame.lateValues.get(lateIndex);
+                }
+            }
+            return null;
+        }
+
+        @Override
+        public Object get(String name) {
+            int index = indexOf(name, 0, name.hashCode());
+            if (index != -1) {
+                return values[index];
+            }
+            int lateIndex = lateIndexOf(name, 0);
+            return lateIndex != -1 ? lateValues.get(lateIndex) : null;
+        }
+
+        @Override
+        public boolean hasBool(String name) {
+            Object v = get(name);
+            return v != null && (boolean) v;
+        }
+
+        @Override
+        public Map<String, Object> getSymbols() {
+            Map<String, Object> symbols = new HashMap<>();
+            for (int i = start; i < end(); i++) {
+                symbols.put(names[i], values[i]);
+            }
+            if (lateNames != null) {
+                for (int i = 0; i < lateNames.size(); i++) {
+                    symbols.put(lateNames.get(i), lateValues.get(i));
+                }
+            }
+            return symbols;
+        }
+
+        @Override
+        public int depth() {
+            return level + 1;
+        }
+
+        @Override
+        public String toString() {
+            return type + ":" + getSymbols();
+        }
+    }
+}
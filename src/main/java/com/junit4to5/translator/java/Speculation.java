@@ -0,0 +1,46 @@
+package com.junit4to5.translator.java;
+
+import java.util.Set;
+
+/**
+ * Metadata facts a JUnit4 file was translated with before the metadata of all files was collected:
+ * the cross references to its main class and what it inherits from its base classes.
+ * Both only grow while metadata is collected, so the translation stays valid as long as they are unchanged.
+ */
+final class Speculation {
+    private final String fullyQualifiedName;
+    private final Set<String> crossReferences;
+    private final Set<String> inheritedFacts;
+
+    private Speculation(String fullyQualifiedName, Set<String> crossReferences, Set<String> inheritedFacts) {
+        this.fullyQualifiedName = fullyQualifiedName;
+        this.crossReferences = crossReferences;
+        this.inheritedFacts = inheritedFacts;
+    }
+
+    public static Speculation record(
+        String fullyQualifiedName,
+        CrossReferences crossReferences,
+        MetadataTable metadataTable
+    ) {
+        if (fullyQualifiedName == null) {
+            return new Speculation(null, Set.of(), Set.of());
+        }
+        return new Speculation(
+            fullyQualifiedName,
+            crossReferences.referencedKeys(fullyQualifiedName),
+            metadataTable.inheritedFacts(fullyQualifiedName));
+    }
+
+    public boolean holds(CrossReferences crossReferences, MetadataTable metadataTable) {
+        if (fullyQualifiedName == null) {
+            return true;
+        }
+        return this.crossReferences.equals(crossReferences.referencedKeys(fullyQualifiedName)) &&
+               inheritedFacts.equals(metadataTable.inheritedFacts(fullyQualifiedName));
+    }
+
+    public Speculation refresh(CrossReferences crossReferences, MetadataTable metadataTable) {
+        return record(fullyQualifiedName, crossReferences, metadataTable);
+    }
+}
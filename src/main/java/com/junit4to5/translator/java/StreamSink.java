@@ -0,0 +1,37 @@
+package com.junit4to5.translator.java;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+
+/**
+ * Writes translated files to a stream, each one framed by a {@code <byte count> <path>} line followed by its
+ * content, so other tools can split the stream without parsing Java.
+ */
+final class StreamSink implements OutputSink {
+    private final OutputStream out;
+    private final ByteArrayOutputStream content = new ByteArrayOutputStream();
+
+    StreamSink(OutputStream out) {
+        this.out = new BufferedOutputStream(out);
+    }
+
+    @Override
+    public void write(Path inputPath, Path outputPath, Rewriter rewriter) throws IOException {
+        content.reset();
+        try (ChannelTextWriter writer = ChannelTextWriter.open(Channels.newChannel(content))) {
+            rewriter.writeTo(writer);
+        }
+        out.write("%d %s\n".formatted(content.size(), outputPath).getBytes(StandardCharsets.UTF_8));
+        content.writeTo(out);
+    }
+
+    @Override
+    public void close() throws IOException {
+        out.flush();
+    }
+}
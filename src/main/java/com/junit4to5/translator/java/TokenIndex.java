@@ -0,0 +1,92 @@
+package com.junit4to5.translator.java;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.IntConsumer;
+
+import org.antlr.v4.runtime.BufferedTokenStream;
+import org.antlr.v4.runtime.ParserRuleContext;
+import org.antlr.v4.runtime.Token;
+
+import antlr.java.JavaLexer;
+import antlr.java.JavaParser;
+
+/**
+ * Positions of the words of a file, identifiers and keywords, together with its annotations and class bodies,
+ * collected in one walk over the tokens. Passes ask whether a subtree mentions any of the names that would make
+ * them rewrite something before visiting it.
+ */
+final class TokenIndex {
+    static final String ANNOTATION = "@";
+    static final String CLASS_BODY = "{";
+
+    // per key, the number of positions followed by the sorted token indices
+    private final Map<String, int[]> positions;
+
+    TokenIndex(BufferedTokenStream tokens, EnclosingContexts enclosingContexts) {
+        positions = new HashMap<>();
+        tokens.fill();
+        for (int i = 0; i < tokens.size(); i++) {
+            Token token = tokens.get(i);
+            if (token.getChannel() != Token.DEFAULT_CHANNEL) {
+                continue;
+            }
+            if (token.getType() == JavaLexer.AT) {
+                add(ANNOTATION, i);
+            } else if (token.getType() == JavaLexer.LBRACE &&
+                       enclosingContexts.at(i) instanceof JavaParser.ClassBodyContext) {
+                add(CLASS_BODY, i);
+            } else if (token.getType() != Token.EOF && Character.isJavaIdentifierStart(token.getText().charAt(0))) {
+                add(token.getText(), i);
+            }
+        }
+    }
+
+    private void add(String key, int tokenIndex) {
+        int[] indices = positions.computeIfAbsent(key, __ -> new int[4]);
+        int count = indices[0];
+        if (count + 1 == indices.length) {
+            indices = Arrays.copyOf(indices, indices.length * 2);
+            positions.put(key, indices);
+        }
+        indices[count + 1] = tokenIndex;
+        indices[0] = count + 1;
+    }
+
+    /**
+     * Passes the token indices where the key occurs, in order.
+     */
+    public void forEachPosition(String key, IntConsumer consumer) {
+        int[] indices = positions.get(key);
+        if (indices != null) {
+            for (int i = 1; i <= indices[0]; i++) {
+                consumer.accept(indices[i]);
+            }
+        }
+    }
+
+    /**
+     * Tells whether any of the keys occurs within the tokens of the node.
+     */
+    public boolean mentionsAny(ParserRuleContext ctx, Collection<String> keys) {
+        if (ctx.getStop() == null) {
+            return false;
+        }
+        int from = ctx.getStart().getTokenIndex();
+        int to = ctx.getStop().getTokenIndex();
+        for (String key : keys) {
+            int[] indices = positions.get(key);
+            if (indices == null) {
+                continue;
+            }
+            int insertion = Arrays.binarySearch(indices, 1, indices[0] + 1, from);
+            int first = insertion >= 0 ? insertion : -insertion - 1;
+            if (first <= indices[0] && indices[first] <= to) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
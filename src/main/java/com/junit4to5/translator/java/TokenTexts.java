@@ -0,0 +1,151 @@
+package com.junit4to5.translator.java;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.antlr.v4.runtime.BufferedTokenStream;
+import org.antlr.v4.runtime.CharStream;
+import org.antlr.v4.runtime.ParserRuleContext;
+import org.antlr.v4.runtime.Token;
+import org.antlr.v4.runtime.misc.Interval;
+
+import antlr.java.JavaLexer;
+import antlr.java.JavaParser;
+
+/**
+ * Text of parse tree nodes as {@link ParserRuleContext#getText()} builds it, the concatenation of the tokens on the
+ * default channel within the node. Comparisons and hashes are computed over the token span, reading token texts in
+ * place from the input, so checking a node against a known string stops at the first mismatching token instead of
+ * concatenating the whole subtree. Texts that are really needed are memoized per node.
+ */
+final class TokenTexts {
+    private final BufferedTokenStream tokens;
+    private final Map<ParserRuleContext, String> texts;
+    private String input;
+
+    TokenTexts(BufferedTokenStream tokens) {
+        this.tokens = tokens;
+        texts = new HashMap<>();
+    }
+
+    public String text(ParserRuleContext ctx) {
+        return texts.computeIfAbsent(ctx, ParserRuleContext::getText);
+    }
+
+    public boolean equals(ParserRuleContext ctx, String text) {
+        return matchedLength(ctx, text) == text.length();
+    }
+
+    public boolean startsWith(ParserRuleContext ctx, String prefix) {
+        return prefix.isEmpty() || matchedLength(ctx, prefix) >= prefix.length();
+    }
+
+    public boolean in(ParserRuleContext ctx, Collection<String> candidates) {
+        int hash = hash(ctx);
+        for (String candidate : candidates) {
+            if (candidate.hashCode() == hash && equals(ctx, candidate)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * The hash code of the node text, equal to {@code text(ctx).hashCode()}.
+     */
+    public int hash(ParserRuleContext ctx) {
+        String source = input();
+        int hash = 0;
+        for (int i = ctx.getStart().getTokenIndex(); i <= stopIndex(ctx); i++) {
+            Token token = tokens.get(i);
+            if (token.getChannel() != Token.DEFAULT_CHANNEL || token.getType() == Token.EOF) {
+                continue;
+            }
+            if (source != null) {
+                for (int c = token.getStartIndex(); c <= token.getStopIndex(); c++) {
+                    hash = 31 * hash + source.charAt(c);
+                }
+            } else {
+                String tokenText = token.getText();
+                for (int c = 0; c < tokenText.length(); c++) {
+                    hash = 31 * hash + tokenText.charAt(c);
+                }
+            }
+        }
+        return hash;
+    }
+
+    /**
+     * The variable the expression names, as an identifier or as a field of {@code this}, or null for any other
+     * expression, none of which a scope resolves.
+     */
+    public String nameOf(JavaParser.ExpressionContext ctx) {
+        if (ctx.primary() != null && ctx.primary().identifier() != null) {
+            return text(ctx.primary().identifier());
+        } else if (ctx.bop != null &&
+                   ctx.bop.getType() == JavaLexer.DOT &&
+                   ctx.identifier() != null &&
+                   ctx.expression(0).primary() != null &&
+                   ctx.expression(0).primary().THIS() != null) {
+            return text(ctx.identifier());
+        }
+        return null;
+    }
+
+    /**
+     * Tells whether the expression is an identifier or a chain of field accesses on one, the only expressions
+     * whose text can be a type name.
+     */
+    public static boolean isQualifiedName(JavaParser.ExpressionContext ctx) {
+        JavaParser.ExpressionContext receiver = ctx;
+        while (receiver.bop != null && receiver.bop.getType() == JavaLexer.DOT && receiver.identifier() != null) {
+            receiver = receiver.expression(0);
+        }
+        return receiver.primary() != null && receiver.primary().identifier() != null;
+    }
+
+    /**
+     * Length of the longest prefix of the text matched by whole tokens of the node, or more than the text length
+     * when the node text is longer and starts with it.
+     */
+    private int matchedLength(ParserRuleContext ctx, String text) {
+        String source = input();
+        int offset = 0;
+        for (int i = ctx.getStart().getTokenIndex(); i <= stopIndex(ctx); i++) {
+            Token token = tokens.get(i);
+            if (token.getChannel() != Token.DEFAULT_CHANNEL || token.getType() == Token.EOF) {
+                continue;
+            }
+            if (offset >= text.length()) {
+                return offset + 1;
+            }
+            int length = token.getStopIndex() - token.getStartIndex() + 1;
+            int compared = Math.min(length, text.length() - offset);
+            boolean matches = source != null ?
+                text.regionMatches(offset, source, token.getStartIndex(), compared) :
+                text.regionMatches(offset, token.getText(), 0, compared);
+            if (!matches) {
+                return -1;
+            }
+            offset += length;
+        }
+        return offset;
+    }
+
+    private static int stopIndex(ParserRuleContext ctx) {
+        return ctx.getStop() != null ? ctx.getStop().getTokenIndex() : ctx.getStart().getTokenIndex() - 1;
+    }
+
+    /**
+     * The whole input, when its character indices match the token indices, which are code point indices.
+     */
+    private String input() {
+        if (input == null) {
+            CharStream charStream = tokens.getTokenSource().getInputStream();
+            String text = charStream.getText(Interval.of(0, charStream.size() - 1));
+            input = text.length() == charStream.size() ? text : "";
+        }
+        return input.isEmpty() ? null : input;
+    }
+}
@@ -0,0 +1,247 @@
+package com.junit4to5.translator.java;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * The import, annotation and test utility rules of the translation, read from the default rules resource and from
+ * an optional rules file, whose rules override the default ones of the same kind and name. Each import and
+ * annotation is classified by a single lookup of its name.
+ */
+final class TranslationRules {
+    private static final String DEFAULT_RULES = "/translation-rules.conf";
+    private static final String REMOVE = "-";
+    private static final String KEEP = "=";
+
+    private final Map<String, ImportRule> imports;
+    private final Map<String, ImportRule> staticImports;
+    private final Map<String, ImportRule> helperImports;
+    private final Map<String, AnnotationRule> annotations;
+    private final Map<String, AnnotationRule> helperAnnotations;
+    private final Map<String, RunnerRule> runners;
+    private final Map<String, String> testUtilCalls;
+    private final Map<String, String> testUtilStaticCalls;
+    private final List<String> setupRules;
+    private final List<String> classAccess;
+
+    /**
+     * The import replacement, empty when the import is removed.
+     */
+    record ImportRule(Optional<String> maybeReplacement) {
+    }
+
+    enum AnnotatedMethod {
+        ANY, TEST_METHOD, BEFORE_EACH
+    }
+
+    /**
+     * The annotation replacement, blank when the annotation is removed, and what it tells about the annotated
+     * method.
+     */
+    record AnnotationRule(String replacement, AnnotatedMethod annotatedMethod) {
+    }
+
+    /**
+     * The replacement of a {@code @RunWith} annotation, blank when it is removed, with the imports it needs.
+     */
+    record RunnerRule(String replacement, List<String> imports) {
+    }
+
+    private TranslationRules(Builder builder) {
+        imports = Map.copyOf(builder.imports);
+        staticImports = Map.copyOf(builder.staticImports);
+        helperImports = Map.copyOf(builder.helperImports);
+        annotations = Map.copyOf(builder.annotations);
+        helperAnnotations = Map.copyOf(builder.helperAnnotations);
+        runners = Map.copyOf(builder.runners);
+        testUtilCalls = Map.copyOf(builder.testUtilCalls);
+        testUtilStaticCalls = Map.copyOf(builder.testUtilStaticCalls);
+        setupRules = List.copyOf(builder.setupRules);
+        classAccess = List.copyOf(builder.classAccess);
+    }
+
+    public static TranslationRules load(Optional<String> rulesPath) {
+        Builder builder = new Builder();
+        try (InputStream defaultRules = TranslationRules.class.getResourceAsStream(DEFAULT_RULES)) {
+            if (defaultRules == null) {
+                throw new IllegalStateException("Missing default translation rules: " + DEFAULT_RULES);
+            }
+            builder.read(DEFAULT_RULES, new InputStreamReader(defaultRules, StandardCharsets.UTF_8));
+            if (rulesPath.isPresent()) {
+                try (Reader rules = Files.newBufferedReader(Path.of(rulesPath.get()))) {
+                    builder.read(rulesPath.get(), rules);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return new TranslationRules(builder);
+    }
+
+    public Optional<ImportRule> maybeImportRule(String importName, boolean isStatic) {
+        return Optional.ofNullable((isStatic ? staticImports : imports).get(importName));
+    }
+
+    public Optional<ImportRule> maybeHelperImportRule(String importName) {
+        return Optional.ofNullable(helperImports.get(importName));
+    }
+
+    public Optional<AnnotationRule> maybeAnnotationRule(String annotationName) {
+        return Optional.ofNullable(annotations.get(annotationName));
+    }
+
+    public Optional<AnnotationRule> maybeHelperAnnotationRule(String annotationName) {
+        return Optional.ofNullable(helperAnnotations.get(annotationName));
+    }
+
+    public Optional<RunnerRule> maybeRunnerRule(String runner) {
+        return Optional.ofNullable(runners.get(runner));
+    }
+
+    /**
+     * The test utility types taking a test name rule, each with the method it is passed to.
+     */
+    public Map<String, String> testUtilCalls() {
+        return testUtilCalls;
+    }
+
+    /**
+     * The test utility types whose static method takes a test name rule, each with that method.
+     */
+    public Map<String, String> testUtilStaticCalls() {
+        return testUtilStaticCalls;
+    }
+
+    /**
+     * The rule types whose {@code setup()} call moves to the before each method.
+     */
+    public List<String> setupRules() {
+        return setupRules;
+    }
+
+    /**
+     * The expressions passed as the class ahead of a test name rule argument.
+     */
+    public List<String> classAccess() {
+        return classAccess;
+    }
+
+    private static final class Builder {
+        private final Map<String, ImportRule> imports = new HashMap<>();
+        private final Map<String, ImportRule> staticImports = new HashMap<>();
+        private final Map<String, ImportRule> helperImports = new HashMap<>();
+        private final Map<String, AnnotationRule> annotations = new HashMap<>();
+        private final Map<String, AnnotationRule> helperAnnotations = new HashMap<>();
+        private final Map<String, RunnerRule> runners = new HashMap<>();
+        private final Map<String, String> testUtilCalls = new HashMap<>();
+        private final Map<String, String> testUtilStaticCalls = new HashMap<>();
+        private final Set<String> setupRules = new LinkedHashSet<>();
+        private final Set<String> classAccess = new LinkedHashSet<>();
+
+        void read(String source, Reader reader) throws IOException {
+            BufferedReader lines = new BufferedReader(reader);
+            String line;
+            int lineNumber = 0;
+            while ((line = lines.readLine()) != null) {
+                lineNumber++;
+                String rule = line.strip();
+                if (rule.isEmpty() || rule.startsWith("#")) {
+                    continue;
+                }
+                if (!add(rule.split("\\s+"))) {
+                    throw new IllegalArgumentException("Invalid rule at %s:%d: %s".formatted(source, lineNumber, rule));
+                }
+            }
+        }
+
+        private boolean add(String[] fields) {
+            String kind = fields[0];
+            int arguments = fields.length - 1;
+            switch (kind) {
+                case "import", "static-import", "helper-import" -> {
+                    if (arguments != 2) {
+                        return false;
+                    }
+                    Map<String, ImportRule> rules = switch (kind) {
+                        case "import" -> imports;
+                        case "static-import" -> staticImports;
+                        default -> helperImports;
+                    };
+                    rules.put(fields[1], importRule(fields[1], fields[2]));
+                }
+                case "annotation", "helper-annotation" -> {
+                    if (arguments != 2 && (arguments != 3 || "helper-annotation".equals(kind))) {
+                        return false;
+                    }
+                    Optional<AnnotatedMethod> maybeAnnotatedMethod = annotatedMethod(fields);
+                    if (maybeAnnotatedMethod.isEmpty()) {
+                        return false;
+                    }
+                    ("annotation".equals(kind) ? annotations : helperAnnotations)
+                        .put(fields[1], new AnnotationRule(replacement(fields[2]), maybeAnnotatedMethod.get()));
+                }
+                case "runner" -> {
+                    if (arguments < 2) {
+                        return false;
+                    }
+                    runners.put(fields[1], new RunnerRule(
+                        replacement(fields[2]),
+                        List.of(Arrays.copyOfRange(fields, 3, fields.length))));
+                }
+                case "test-util-call", "test-util-static-call" -> {
+                    if (arguments != 2) {
+                        return false;
+                    }
+                    ("test-util-call".equals(kind) ? testUtilCalls : testUtilStaticCalls).put(fields[1], fields[2]);
+                }
+                case "setup-rule", "class-access" -> {
+                    if (arguments != 1) {
+                        return false;
+                    }
+                    ("setup-rule".equals(kind) ? setupRules : classAccess).add(fields[1]);
+                }
+                default -> {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private static ImportRule importRule(String importName, String replacement) {
+            return new ImportRule(switch (replacement) {
+                case REMOVE -> Optional.empty();
+                case KEEP -> Optional.of(importName);
+                default -> Optional.of(replacement);
+            });
+        }
+
+        private static Optional<AnnotatedMethod> annotatedMethod(String[] fields) {
+            if (fields.length == 3) {
+                return Optional.of(AnnotatedMethod.ANY);
+            }
+            return switch (fields[3]) {
+                case "test-method" -> Optional.of(AnnotatedMethod.TEST_METHOD);
+                case "before-each" -> Optional.of(AnnotatedMethod.BEFORE_EACH);
+                default -> Optional.empty();
+            };
+        }
+
+        private static String replacement(String field) {
+            return REMOVE.equals(field) ? "" : field;
+        }
+    }
+}
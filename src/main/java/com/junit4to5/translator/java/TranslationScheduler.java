@@ -0,0 +1,337 @@
+package com.junit4to5.translator.java;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryNotificationInfo;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.function.IntUnaryOperator;
+import java.util.function.Predicate;
+import javax.management.ListenerNotFoundException;
+import javax.management.Notification;
+import javax.management.NotificationEmitter;
+import javax.management.NotificationListener;
+
+import com.sun.management.GarbageCollectionNotificationInfo;
+
+/**
+ * Runs the steps of the files on worker threads, with as many files in flight as the heap allows. The old
+ * generation is watched through its usage thresholds and the collector notifications: the caches are evicted once
+ * its usage crosses the high mark, and the number of files in flight is halved when even the live data left by a
+ * collection crosses it; once a collection leaves the live data below the low mark, one more file is let in at a
+ * time. Files already in flight always run to completion.
+ * <p>
+ * With a single thread the steps run right away on the calling thread, as they always did.
+ */
+final class TranslationScheduler implements Closeable {
+    private static final double HIGH_USAGE = 0.8;
+    private static final double LOW_USAGE = 0.5;
+
+    private final int maxConcurrency;
+    private final Runnable evictCaches;
+    private final long startedAt;
+    private final ReentrantLock lock;
+    private final Condition changed;
+    private final List<Change> timeline;
+    private final ExecutorService workers;
+    private final MemoryPoolMXBean heapPool;
+    private final NotificationListener heapListener;
+    private int concurrency;
+    private int inFlight;
+    private int completedSinceChange;
+    private Throwable failure;
+
+    private record Change(Duration at, int concurrency, String reason) {
+    }
+
+    /**
+     * @param maxConcurrency the number of worker threads, the most files in flight
+     * @param evictCaches drops whatever cached state the steps still to run can do without
+     */
+    TranslationScheduler(int maxConcurrency, Runnable evictCaches) {
+        this.maxConcurrency = maxConcurrency;
+        this.evictCaches = evictCaches;
+        startedAt = System.nanoTime();
+        lock = new ReentrantLock();
+        changed = lock.newCondition();
+        timeline = new ArrayList<>();
+        concurrency = maxConcurrency;
+        if (maxConcurrency == 1) {
+            workers = null;
+            heapPool = null;
+            heapListener = null;
+            return;
+        }
+        workers = Executors.newFixedThreadPool(maxConcurrency, runnable -> {
+            Thread thread = new Thread(runnable, "translator-worker");
+            thread.setDaemon(true);
+            return thread;
+        });
+        heapPool = maybeHeapPool().orElse(null);
+        heapListener = this::onHeapNotification;
+        timeline.add(new Change(Duration.ZERO, concurrency, "start"));
+        if (heapPool != null) {
+            long threshold = Math.round(heapPool.getUsage().getMax() * HIGH_USAGE);
+            heapPool.setUsageThreshold(threshold);
+            heapPool.setCollectionUsageThreshold(threshold);
+            emitters().forEach(emitter -> emitter.addNotificationListener(heapListener, null, null));
+        }
+    }
+
+    /**
+     * The pool holding the long-lived objects, like the cached trees, when its size is bounded.
+     */
+    private static Optional<MemoryPoolMXBean> maybeHeapPool() {
+        return ManagementFactory.getMemoryPoolMXBeans().stream()
+            .filter(pool -> pool.getType() == MemoryType.HEAP &&
+                pool.isUsageThresholdSupported() &&
+                pool.isCollectionUsageThresholdSupported() &&
+                pool.getUsage().getMax() > 0)
+            .findFirst();
+    }
+
+    private static List<NotificationEmitter> emitters() {
+        List<NotificationEmitter> emitters = new ArrayList<>();
+        emitters.add((NotificationEmitter) ManagementFactory.getMemoryMXBean());
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            if (collector instanceof NotificationEmitter emitter) {
+                emitters.add(emitter);
+            }
+        }
+        return emitters;
+    }
+
+    public boolean isParallel() {
+        return workers != null;
+    }
+
+    /**
+     * Runs the step of the file on a worker thread once there is room for one more file in flight, or right away
+     * with a single thread. A failure of an earlier step is rethrown here, or at the latest by {@link #awaitAll()}.
+     */
+    public void submit(Deadline.Step<IOException> step) throws IOException {
+        if (workers == null) {
+            step.run();
+            return;
+        }
+        lock.lock();
+        try {
+            while (failure == null && inFlight >= concurrency) {
+                changed.awaitUninterruptibly();
+            }
+            rethrowFailure();
+            inFlight++;
+        } finally {
+            lock.unlock();
+        }
+        workers.execute(() -> {
+            Throwable stepFailure = null;
+            try {
+                step.run();
+            } catch (IOException | RuntimeException | Error e) {
+                stepFailure = e;
+            }
+            lock.lock();
+            try {
+                inFlight--;
+                completedSinceChange++;
+                if (failure == null) {
+                    failure = stepFailure;
+                }
+                changed.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        });
+    }
+
+    /**
+     * Submits the step of every file once the steps of the files it depends on completed, taking the files in the
+     * given order otherwise. Dependencies on files not given are ignored, and a file is taken regardless of its
+     * dependencies when no other step is left to complete them, which only happens on cyclic ones.
+     */
+    public void submitAll(
+        List<String> inputFiles,
+        Map<String, Set<String>> dependencies,
+        Function<String, Deadline.Step<IOException>> steps
+    ) throws IOException {
+        Set<String> givenFiles = new HashSet<>(inputFiles);
+        Set<String> completedFiles = new HashSet<>();
+        Predicate<String> isReady = inputFile -> dependencies.getOrDefault(inputFile, Set.of()).stream()
+            .allMatch(dependency -> !givenFiles.contains(dependency) || completedFiles.contains(dependency));
+        List<String> pendingFiles = new LinkedList<>(inputFiles);
+        while (!pendingFiles.isEmpty()) {
+            String inputFile = awaitReady(pendingFiles, isReady);
+            Deadline.Step<IOException> step = steps.apply(inputFile);
+            submit(() -> {
+                try {
+                    step.run();
+                } finally {
+                    lock.lock();
+                    try {
+                        completedFiles.add(inputFile);
+                    } finally {
+                        lock.unlock();
+                    }
+                }
+            });
+        }
+    }
+
+    /**
+     * Removes and returns the first pending file ready to run, once there is room for one more file in flight.
+     */
+    private String awaitReady(List<String> pendingFiles, Predicate<String> isReady) throws IOException {
+        lock.lock();
+        try {
+            while (true) {
+                rethrowFailure();
+                if (inFlight < concurrency) {
+                    Iterator<String> pending = pendingFiles.iterator();
+                    while (pending.hasNext()) {
+                        String inputFile = pending.next();
+                        if (isReady.test(inputFile)) {
+                            pending.remove();
+                            return inputFile;
+                        }
+                    }
+                    if (inFlight == 0) {
+                        return pendingFiles.remove(0);
+                    }
+                }
+                changed.awaitUninterruptibly();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Waits for every submitted step, rethrowing the first failure.
+     */
+    public void awaitAll() throws IOException {
+        lock.lock();
+        try {
+            while (inFlight > 0) {
+                changed.awaitUninterruptibly();
+            }
+            rethrowFailure();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void rethrowFailure() throws IOException {
+        if (failure instanceof IOException e) {
+            throw e;
+        } else if (failure instanceof RuntimeException e) {
+            throw e;
+        } else if (failure instanceof Error e) {
+            throw e;
+        }
+    }
+
+    private void onHeapNotification(Notification notification, Object handback) {
+        switch (notification.getType()) {
+            case MemoryNotificationInfo.MEMORY_THRESHOLD_EXCEEDED ->
+                // garbage may be all there is above the mark, so only a collection tells whether to slow down
+                evictCaches.run();
+            case MemoryNotificationInfo.MEMORY_COLLECTION_THRESHOLD_EXCEEDED -> {
+                evictCaches.run();
+                adjust(current -> Math.max(1, current / 2), ", caches evicted");
+            }
+            case GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION -> {
+                if (liveUsage() < LOW_USAGE) {
+                    adjust(current -> Math.min(maxConcurrency, current + 1), "");
+                }
+            }
+            default -> {
+            }
+        }
+    }
+
+    private double liveUsage() {
+        MemoryUsage collectionUsage = heapPool.getCollectionUsage();
+        return collectionUsage != null ? (double) collectionUsage.getUsed() / heapPool.getUsage().getMax() : 0;
+    }
+
+    /**
+     * Changes the number of files let in flight, once a file completed under the current number, which keeps
+     * a burst of notifications from the same pressure from changing it over and over.
+     */
+    private void adjust(IntUnaryOperator change, String note) {
+        lock.lock();
+        try {
+            int newConcurrency = change.applyAsInt(concurrency);
+            if (newConcurrency == concurrency || completedSinceChange == 0) {
+                return;
+            }
+            concurrency = newConcurrency;
+            completedSinceChange = 0;
+            String reason = "live heap at %d%%%s".formatted(Math.round(liveUsage() * 100), note);
+            timeline.add(new Change(Duration.ofNanos(System.nanoTime() - startedAt), concurrency, reason));
+            changed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Prints how many files were let in flight over the run, for runs with more than one thread.
+     */
+    public void report(PrintStream out) {
+        if (workers == null) {
+            return;
+        }
+        lock.lock();
+        try {
+            out.printf("Files in flight over the run (%d thread(s)):%n", maxConcurrency);
+            for (Change change : timeline) {
+                out.printf(
+                    "  %8.3fs %3d  %s%n",
+                    change.at().toMillis() / 1000.0,
+                    change.concurrency(),
+                    change.reason());
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void close() {
+        if (workers == null) {
+            return;
+        }
+        workers.shutdown();
+        if (heapPool != null) {
+            for (NotificationEmitter emitter : emitters()) {
+                try {
+                    emitter.removeNotificationListener(heapListener);
+                } catch (ListenerNotFoundException e) {
+                    // the listener was only added where the pool could be watched
+                }
+            }
+            heapPool.setUsageThreshold(0);
+            heapPool.setCollectionUsageThreshold(0);
+        }
+    }
+}
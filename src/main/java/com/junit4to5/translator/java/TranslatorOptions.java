@@ -0,0 +1,178 @@
+package com.junit4to5.translator.java;
+
+import java.time.Duration;
+import java.util.Optional;
+
+final class TranslatorOptions {
+    private String path;
+    private boolean speculative;
+    private OutputKind outputKind = OutputKind.FILES;
+    private String outputPath;
+    private String rulesPath;
+    private Duration fileTimeout = Duration.ZERO;
+    private boolean lexerFallback;
+    private String journalPath;
+    private int threads = 1;
+
+    enum OutputKind {
+        FILES, DIRECTORY, ZIP, STREAM, NULL, DIFF
+    }
+
+    private TranslatorOptions() {
+    }
+
+    public static TranslatorOptions parse(String[] args) {
+        TranslatorOptions options = new TranslatorOptions();
+        for (String arg : args) {
+            switch (arg) {
+                case "--speculative" -> options.speculative = true;
+                case "--diff" -> options.outputKind = OutputKind.DIFF;
+                case "--lexer-fallback" -> options.lexerFallback = true;
+                default -> {
+                    if (arg.startsWith("--output=")) {
+                        options.parseOutput(arg.substring("--output=".length()));
+                    } else if (arg.startsWith("--rules=")) {
+                        options.rulesPath = arg.substring("--rules=".length());
+                    } else if (arg.startsWith("--journal=")) {
+                        options.journalPath = arg.substring("--journal=".length());
+                    } else if (arg.startsWith("--threads=")) {
+                        options.parseThreads(arg.substring("--threads=".length()));
+                    } else if (arg.startsWith("--file-timeout=")) {
+                        options.parseFileTimeout(arg.substring("--file-timeout=".length()));
+                    } else if (arg.startsWith("--")) {
+                        throw new IllegalArgumentException("Unknown option: " + arg);
+                    } else if (options.path != null) {
+                        throw new IllegalArgumentException("Unexpected argument: " + arg);
+                    } else {
+                        options.path = arg;
+                    }
+                }
+            }
+        }
+        if (options.speculative) {
+            options.checkSpeculative();
+        }
+        if (options.journalPath != null) {
+            options.checkJournal();
+        }
+        if (options.threads > 1) {
+            options.checkThreads();
+        }
+        return options;
+    }
+
+    public Optional<String> path() {
+        return Optional.ofNullable(path);
+    }
+
+    public boolean speculative() {
+        return speculative;
+    }
+
+    private void parseOutput(String output) {
+        String[] kindAndPath = output.split(":", 2);
+        outputKind = switch (kindAndPath[0]) {
+            case "files" -> OutputKind.FILES;
+            case "dir" -> OutputKind.DIRECTORY;
+            case "zip" -> OutputKind.ZIP;
+            case "stdout" -> OutputKind.STREAM;
+            case "null" -> OutputKind.NULL;
+            case "diff" -> OutputKind.DIFF;
+            default -> throw new IllegalArgumentException("Unknown output: " + output);
+        };
+        boolean requiresPath = outputKind == OutputKind.DIRECTORY || outputKind == OutputKind.ZIP;
+        if (requiresPath != (kindAndPath.length == 2)) {
+            throw new IllegalArgumentException(
+                (requiresPath ? "Missing path for output: " : "Unexpected path for output: ") + output);
+        }
+        outputPath = requiresPath ? kindAndPath[1] : null;
+    }
+
+    private void checkSpeculative() {
+        if (outputKind == OutputKind.ZIP || outputKind == OutputKind.STREAM || outputKind == OutputKind.DIFF) {
+            // a redone file would be written a second time to the same archive, stream or patch
+            throw new IllegalArgumentException("--speculative needs the files, dir or null output");
+        }
+    }
+
+    private void checkJournal() {
+        if (speculative) {
+            // speculative outputs are only final once every file was translated, too late for a checkpoint
+            throw new IllegalArgumentException("A journal cannot be used with --speculative");
+        }
+        if (outputKind != OutputKind.FILES && outputKind != OutputKind.DIRECTORY) {
+            throw new IllegalArgumentException("A journal needs the files or dir output");
+        }
+    }
+
+    private void checkThreads() {
+        if (speculative) {
+            // the redo of a speculation relies on the files being translated in order
+            throw new IllegalArgumentException("--threads cannot be used with --speculative");
+        }
+        if (outputKind != OutputKind.FILES && outputKind != OutputKind.DIRECTORY && outputKind != OutputKind.NULL) {
+            // a single stream would get the files in whatever order they complete
+            throw new IllegalArgumentException("--threads needs the files, dir or null output");
+        }
+    }
+
+    private void parseThreads(String count) {
+        try {
+            threads = Integer.parseInt(count);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid thread count: " + count, e);
+        }
+        if (threads < 1) {
+            throw new IllegalArgumentException("Invalid thread count: " + count);
+        }
+    }
+
+    private void parseFileTimeout(String seconds) {
+        try {
+            fileTimeout = Duration.ofSeconds(Long.parseLong(seconds));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid file timeout: " + seconds, e);
+        }
+        if (fileTimeout.isNegative()) {
+            throw new IllegalArgumentException("Invalid file timeout: " + seconds);
+        }
+    }
+
+    public OutputKind outputKind() {
+        return outputKind;
+    }
+
+    public Optional<String> outputPath() {
+        return Optional.ofNullable(outputPath);
+    }
+
+    public Optional<String> rulesPath() {
+        return Optional.ofNullable(rulesPath);
+    }
+
+    /**
+     * The time budget of each step of a file, zero for none.
+     */
+    public Duration fileTimeout() {
+        return fileTimeout;
+    }
+
+    public boolean lexerFallback() {
+        return lexerFallback;
+    }
+
+    public Optional<String> journalPath() {
+        return Optional.ofNullable(journalPath);
+    }
+
+    /**
+     * The number of files translated at once at most.
+     */
+    public int threads() {
+        return threads;
+    }
+
+    public boolean writesToStandardOutput() {
+        return outputKind == OutputKind.STREAM || outputKind == OutputKind.DIFF;
+    }
+}
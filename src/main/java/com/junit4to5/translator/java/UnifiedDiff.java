@@ -0,0 +1,254 @@
+package com.junit4to5.translator.java;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+
+import org.antlr.v4.runtime.CharStream;
+import org.antlr.v4.runtime.misc.Interval;
+
+/**
+ * Unified diff of a rewritten file, built from its rewrite edits with the context lines read from the original
+ * input around them, so the work done follows the number of edits rather than the size of the file.
+ */
+final class UnifiedDiff {
+    private static final int CONTEXT_LINES = 3;
+    private static final long MAX_LCS_CELLS = 1L << 22;
+
+    private final CharStream input;
+    private final int length;
+    private final Appendable out;
+    private final StringBuilder hunk = new StringBuilder();
+    private int hunkOldStart;
+    private int hunkNewStart;
+    private int hunkOldLines;
+    private int hunkNewLines;
+    private boolean hunkOpen;
+
+    private record Block(int start, int stop, int line, String text) {}
+
+    private UnifiedDiff(CharStream input, Appendable out) {
+        this.input = input;
+        length = input.size();
+        this.out = out;
+    }
+
+    static void write(
+        String oldName,
+        String newName,
+        CharStream input,
+        List<RewriteOperations.Edit> edits,
+        Appendable out
+    ) throws IOException {
+        if (edits.isEmpty()) {
+            return;
+        }
+        out.append("--- ").append(oldName).append('\n');
+        out.append("+++ ").append(newName).append('\n');
+        new UnifiedDiff(input, out).writeHunks(edits);
+    }
+
+    private void writeHunks(List<RewriteOperations.Edit> edits) throws IOException {
+        int delta = 0;
+        int previousStop = 0;
+        int previousLine = 0;
+        for (Block block : blocks(edits)) {
+            int gap = block.line() - previousLine;
+            if (hunkOpen && gap > 2 * CONTEXT_LINES) {
+                appendContext(linesAfter(previousStop, CONTEXT_LINES));
+                flushHunk();
+            }
+            if (hunkOpen) {
+                appendContext(lines(text(previousStop, block.start())));
+            } else {
+                List<String> leadingContext = linesBefore(block.start(), Math.min(CONTEXT_LINES, block.line() - 1));
+                hunkOpen = true;
+                hunkOldStart = block.line() - leadingContext.size();
+                hunkNewStart = hunkOldStart + delta;
+                appendContext(leadingContext);
+            }
+
+            List<String> oldLines = lines(text(block.start(), block.stop()));
+            List<String> newLines = lines(block.text());
+            appendChanges(oldLines, newLines);
+            delta += newLines.size() - oldLines.size();
+            previousStop = block.stop();
+            previousLine = block.line() + oldLines.size();
+        }
+        appendContext(linesAfter(previousStop, CONTEXT_LINES));
+        flushHunk();
+    }
+
+    /**
+     * Groups the edits touching the same lines, extending each group to whole lines of the input.
+     */
+    private List<Block> blocks(List<RewriteOperations.Edit> edits) {
+        List<Block> blocks = new ArrayList<>();
+        int i = 0;
+        while (i < edits.size()) {
+            RewriteOperations.Edit first = edits.get(i);
+            int start = lineStart(first.start());
+            int stop = lineStop(first);
+            int position = start;
+            StringBuilder text = new StringBuilder();
+            do {
+                RewriteOperations.Edit edit = edits.get(i++);
+                text.append(text(position, edit.start())).append(edit.text());
+                position = edit.stop();
+                stop = Math.max(stop, lineStop(edit));
+            } while (i < edits.size() && lineStart(edits.get(i).start()) < stop);
+            text.append(text(position, stop));
+            blocks.add(new Block(start, stop, first.line(), text.toString()));
+        }
+        return blocks;
+    }
+
+    private void appendChanges(List<String> oldLines, List<String> newLines) {
+        int prefix = 0;
+        while (prefix < oldLines.size() && prefix < newLines.size() &&
+               oldLines.get(prefix).equals(newLines.get(prefix))) {
+            prefix++;
+        }
+        int suffix = 0;
+        while (suffix < oldLines.size() - prefix && suffix < newLines.size() - prefix &&
+               oldLines.get(oldLines.size() - 1 - suffix).equals(newLines.get(newLines.size() - 1 - suffix))) {
+            suffix++;
+        }
+
+        appendContext(oldLines.subList(0, prefix));
+        List<String> oldMiddle = oldLines.subList(prefix, oldLines.size() - suffix);
+        List<String> newMiddle = newLines.subList(prefix, newLines.size() - suffix);
+        if ((long) oldMiddle.size() * newMiddle.size() > MAX_LCS_CELLS) {
+            oldMiddle.forEach(line -> appendLine('-', line));
+            newMiddle.forEach(line -> appendLine('+', line));
+        } else {
+            appendLongestCommonSubsequence(oldMiddle, newMiddle);
+        }
+        appendContext(oldLines.subList(oldLines.size() - suffix, oldLines.size()));
+    }
+
+    private void appendLongestCommonSubsequence(List<String> oldLines, List<String> newLines) {
+        int n = oldLines.size();
+        int m = newLines.size();
+        int[][] common = new int[n + 1][m + 1];
+        for (int i = n - 1; i >= 0; i--) {
+            for (int j = m - 1; j >= 0; j--) {
+                common[i][j] = oldLines.get(i).equals(newLines.get(j)) ?
+                    common[i + 1][j + 1] + 1 :
+                    Math.max(common[i + 1][j], common[i][j + 1]);
+            }
+        }
+        int i = 0;
+        int j = 0;
+        while (i < n || j < m) {
+            if (i < n && j < m && oldLines.get(i).equals(newLines.get(j))) {
+                appendLine(' ', oldLines.get(i++));
+                j++;
+            } else if (j == m || (i < n && common[i + 1][j] >= common[i][j + 1])) {
+                appendLine('-', oldLines.get(i++));
+            } else {
+                appendLine('+', newLines.get(j++));
+            }
+        }
+    }
+
+    private void appendContext(List<String> lines) {
+        lines.forEach(line -> appendLine(' ', line));
+    }
+
+    private void appendLine(char kind, String line) {
+        if (kind != '+') {
+            hunkOldLines++;
+        }
+        if (kind != '-') {
+            hunkNewLines++;
+        }
+        hunk.append(kind).append(line);
+        if (!line.endsWith("\n")) {
+            hunk.append("\n\\ No newline at end of file\n");
+        }
+    }
+
+    private void flushHunk() throws IOException {
+        out.append("@@ -").append(range(hunkOldStart, hunkOldLines))
+            .append(" +").append(range(hunkNewStart, hunkNewLines))
+            .append(" @@\n")
+            .append(hunk);
+        hunk.setLength(0);
+        hunkOldLines = 0;
+        hunkNewLines = 0;
+        hunkOpen = false;
+    }
+
+    private static String range(int start, int lines) {
+        return switch (lines) {
+            case 0 -> (start - 1) + ",0";
+            case 1 -> String.valueOf(start);
+            default -> start + "," + lines;
+        };
+    }
+
+    private List<String> linesBefore(int position, int count) {
+        LinkedList<String> lines = new LinkedList<>();
+        int stop = position;
+        while (lines.size() < count && stop > 0) {
+            int start = lineStart(stop - 1);
+            lines.addFirst(text(start, stop));
+            stop = start;
+        }
+        return lines;
+    }
+
+    private List<String> linesAfter(int position, int count) {
+        List<String> lines = new ArrayList<>();
+        int start = position;
+        while (lines.size() < count && start < length) {
+            int stop = lineStop(start);
+            lines.add(text(start, stop));
+            start = stop;
+        }
+        return lines;
+    }
+
+    private static List<String> lines(String text) {
+        List<String> lines = new ArrayList<>();
+        int start = 0;
+        while (start < text.length()) {
+            int newLine = text.indexOf('\n', start);
+            int stop = newLine == -1 ? text.length() : newLine + 1;
+            lines.add(text.substring(start, stop));
+            start = stop;
+        }
+        return lines;
+    }
+
+    private int lineStart(int position) {
+        int start = position;
+        while (start > 0 && codePointAt(start - 1) != '\n') {
+            start--;
+        }
+        return start;
+    }
+
+    private int lineStop(RewriteOperations.Edit edit) {
+        return lineStop(edit.stop() > edit.start() ? edit.stop() - 1 : edit.start());
+    }
+
+    private int lineStop(int position) {
+        int stop = position;
+        while (stop < length && codePointAt(stop) != '\n') {
+            stop++;
+        }
+        return Math.min(stop + 1, length);
+    }
+
+    private int codePointAt(int position) {
+        input.seek(position);
+        return input.LA(1);
+    }
+
+    private String text(int start, int stop) {
+        return start < stop ? input.getText(Interval.of(start, stop - 1)) : "";
+    }
+}
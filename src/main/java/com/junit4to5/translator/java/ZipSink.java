@@ -0,0 +1,34 @@
+package com.junit4to5.translator.java;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Writes every translated file as an entry of a single zip archive, one entry after the other.
+ */
+final class ZipSink implements OutputSink {
+    private final ZipOutputStream zip;
+
+    ZipSink(Path archive) throws IOException {
+        zip = new ZipOutputStream(new BufferedOutputStream(Files.newOutputStream(archive)));
+    }
+
+    @Override
+    public void write(Path inputPath, Path outputPath, Rewriter rewriter) throws IOException {
+        zip.putNextEntry(new ZipEntry(MirrorDirectorySink.relative(outputPath).toString().replace('\\', '/')));
+        try (ChannelTextWriter writer = ChannelTextWriter.open(Channels.newChannel(zip))) {
+            rewriter.writeTo(writer);
+        }
+        zip.closeEntry();
+    }
+
+    @Override
+    public void close() throws IOException {
+        zip.close();
+    }
+}
@@ -0,0 +1,67 @@
+package com.junit4to5.translator.java;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+class LineLengthsTest {
+    private static final String[] FRAGMENTS = {"", "a", "bcd", "\n", "ef\n", "\ng", "hi\n\njklm\nn", "\n\n"};
+
+    @Test
+    void measuresLinesOfText() {
+        assertEquals(new LineLengths.Lines(0, 0, -1), LineLengths.Lines.of(""));
+        assertEquals(new LineLengths.Lines(3, 3, -1), LineLengths.Lines.of("abc"));
+        assertEquals(new LineLengths.Lines(2, 1, 0), LineLengths.Lines.of("ab\nc"));
+        assertEquals(new LineLengths.Lines(1, 0, 4), LineLengths.Lines.of("a\nbcde\n\nf\n"));
+        assertEquals(4, LineLengths.Lines.of("a\nbcde\n\nf\n").longest());
+    }
+
+    @Test
+    void measuresConcatenationsLikeTheirText() {
+        Random random = new Random(0);
+        for (int i = 0; i < 10_000; i++) {
+            String first = randomText(random, 3);
+            String second = randomText(random, 3);
+            assertEquals(
+                LineLengths.Lines.of(first + second),
+                LineLengths.Lines.of(first).then(LineLengths.Lines.of(second)),
+                () -> "'%s' then '%s'".formatted(first, second));
+        }
+    }
+
+    @Test
+    void measuresRangesOfFragmentsLikeTheirText() {
+        Random random = new Random(0);
+        for (int size = 1; size <= 33; size++) {
+            String[] fragments = new String[size];
+            LineLengths lineLengths = new LineLengths(size);
+            for (int i = 0; i < size; i++) {
+                fragments[i] = randomText(random, 1);
+                lineLengths.setLeaf(i, LineLengths.Lines.of(fragments[i]));
+            }
+            lineLengths.update(0, size - 1);
+            for (int change = 0; change < 50; change++) {
+                int index = random.nextInt(size);
+                fragments[index] = randomText(random, 2);
+                lineLengths.setLeaf(index, LineLengths.Lines.of(fragments[index]));
+                lineLengths.update(index, index);
+
+                int from = random.nextInt(size);
+                int to = from + random.nextInt(size - from);
+                String text = String.join("", Arrays.copyOfRange(fragments, from, to + 1));
+                assertEquals(LineLengths.Lines.of(text), lineLengths.get(from, to), () -> "'" + text + "'");
+            }
+        }
+    }
+
+    private static String randomText(Random random, int fragments) {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < fragments; i++) {
+            text.append(FRAGMENTS[random.nextInt(FRAGMENTS.length)]);
+        }
+        return text.toString();
+    }
+}
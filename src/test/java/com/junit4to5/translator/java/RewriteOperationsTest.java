@@ -0,0 +1,235 @@
+package com.junit4to5.translator.java;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Supplier;
+
+import org.antlr.v4.runtime.CharStreams;
+import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.TokenStreamRewriter;
+import org.antlr.v4.runtime.misc.Interval;
+import org.junit.jupiter.api.Test;
+
+import antlr.java.JavaLexer;
+
+/**
+ * Checks {@link RewriteOperations} against ANTLR's {@link TokenStreamRewriter}, which it replaces, by applying the
+ * same random operations to both.
+ */
+class RewriteOperationsTest {
+    private static final String SOURCE = """
+        package p;
+
+        public class CalculatorTest {
+            @Test
+            public void addsNumbers() {
+                assertEquals(3, calculator.add(1, 2)); // three
+            }
+        }
+        """;
+    private static final String[] TEXTS = {"", "x", "yy\n", "\n    z", "w\nv\n"};
+    private static final int SEQUENCES = 2000;
+    private static final int OPERATIONS = 16;
+    private static final int INTERVALS = 8;
+
+    private enum Kind { INSERT_BEFORE, INSERT_AFTER, REPLACE, DELETE }
+
+    private record Operation(Kind kind, int from, int to, String text) {
+        void applyTo(RewriteOperations operations) {
+            switch (kind) {
+                case INSERT_BEFORE -> operations.insertBefore(from, text);
+                case INSERT_AFTER -> operations.insertAfter(from, text);
+                case REPLACE -> operations.replace(from, to, text);
+                case DELETE -> operations.delete(from, to);
+            }
+        }
+
+        void applyTo(TokenStreamRewriter rewriter) {
+            switch (kind) {
+                case INSERT_BEFORE -> rewriter.insertBefore(from, text);
+                case INSERT_AFTER -> rewriter.insertAfter(from, text);
+                case REPLACE -> rewriter.replace(from, to, text);
+                case DELETE -> rewriter.delete(from, to);
+            }
+        }
+    }
+
+    @Test
+    void rendersAndConflictsLikeTokenStreamRewriter() {
+        CommonTokenStream tokens = tokens(SOURCE);
+        for (long seed = 0; seed < SEQUENCES; seed++) {
+            Random random = new Random(seed);
+            List<Operation> applied = new ArrayList<>();
+            RewriteOperations operations = new RewriteOperations(tokens);
+            for (int step = 0; step < OPERATIONS; step++) {
+                Operation operation = randomOperation(random, tokens);
+                Supplier<String> context = describe(seed, applied, operation);
+
+                TokenStreamRewriter rewriter = new TokenStreamRewriter(tokens);
+                applied.forEach(previous -> previous.applyTo(rewriter));
+                operation.applyTo(rewriter);
+                boolean expectedConflict = conflicts(rewriter);
+                RewriteOperations current = operations;
+                boolean conflict = conflicts(() -> operation.applyTo(current));
+                assertEquals(expectedConflict, conflict, context);
+                if (conflict) {
+                    // neither engine is usable after a conflict, so start over from the operations applied so far
+                    operations = new RewriteOperations(tokens);
+                    for (Operation previous : applied) {
+                        previous.applyTo(operations);
+                    }
+                    continue;
+                }
+                applied.add(operation);
+
+                assertRendersLike(rewriter, operations, tokens, Interval.of(0, tokens.size() - 1), context);
+                for (int i = 0; i < INTERVALS; i++) {
+                    int a = random.nextInt(tokens.size());
+                    int b = a + random.nextInt(tokens.size() - a);
+                    assertRendersLike(rewriter, operations, tokens, Interval.of(a, b), context);
+                }
+            }
+        }
+    }
+
+    private static void assertRendersLike(
+        TokenStreamRewriter rewriter,
+        RewriteOperations operations,
+        CommonTokenStream tokens,
+        Interval interval,
+        Supplier<String> context
+    ) {
+        Supplier<String> where = () -> context.get() + " over " + interval;
+        String expected = rewriter.getText(interval);
+        assertEquals(expected, operations.getText(interval), where);
+        assertEquals(longestLine(expected), operations.longestLine(interval), where);
+        if (interval.a == 0 && interval.b == tokens.size() - 1) {
+            assertEquals(expected, applyEdits(SOURCE, operations.edits()), context);
+            if (!operations.hasChanges()) {
+                assertEquals(SOURCE, expected, context);
+            }
+        }
+    }
+
+    @Test
+    void tellsWhetherRenderingChanges() {
+        CommonTokenStream tokens = tokens(SOURCE);
+        int classToken = indexOf(tokens, "class");
+        RewriteOperations operations = new RewriteOperations(tokens);
+        assertFalse(operations.hasChanges());
+
+        operations.insertBefore(classToken, "");
+        operations.replace(classToken, classToken, "class");
+        assertFalse(operations.hasChanges());
+
+        operations.replace(classToken, classToken, "record");
+        assertTrue(operations.hasChanges());
+        assertEquals(List.of(new RewriteOperations.Edit(
+            SOURCE.indexOf("class"), SOURCE.indexOf("class") + "class".length(), 3, "record")), operations.edits());
+    }
+
+    @Test
+    void replacesRenderedRangesOnlyWhenNoReplaceCrossesThem() {
+        CommonTokenStream tokens = tokens(SOURCE);
+        int publicToken = indexOf(tokens, "public");
+        int classToken = indexOf(tokens, "class");
+        RewriteOperations operations = new RewriteOperations(tokens);
+        operations.insertBefore(publicToken, "final ");
+        operations.replace(classToken, classToken + 2, "record CalculatorTest()");
+
+        assertTrue(operations.canReplaceRendered(publicToken, classToken + 2));
+        assertFalse(operations.canReplaceRendered(publicToken, classToken + 1));
+        assertFalse(operations.canReplaceRendered(classToken + 1, classToken + 4));
+        assertThrows(
+            IllegalArgumentException.class,
+            () -> operations.replaceRendered(classToken + 1, classToken + 4, ""));
+
+        operations.replaceRendered(publicToken, classToken + 2, "final class CalculatorTest");
+        assertEquals(
+            SOURCE.replace("public class", "final class"),
+            operations.getText(Interval.of(0, tokens.size() - 1)));
+    }
+
+    private static Operation randomOperation(Random random, CommonTokenStream tokens) {
+        Kind kind = Kind.values()[random.nextInt(Kind.values().length)];
+        int from = random.nextInt(tokens.size());
+        int to = Math.min(from + random.nextInt(4), tokens.size() - 1);
+        String text = random.nextInt(4) == 0 ?
+            tokens.getText(Interval.of(from, to)) :
+            TEXTS[random.nextInt(TEXTS.length)];
+        return switch (kind) {
+            case INSERT_BEFORE, INSERT_AFTER -> new Operation(kind, from, from, text);
+            case REPLACE -> new Operation(kind, from, to, text);
+            case DELETE -> new Operation(kind, from, to, null);
+        };
+    }
+
+    /**
+     * Tells whether ANTLR rejects the operations. It does not see that a delete merged into an earlier delete
+     * crosses the insert that delete absorbed, and fails on the two operations left at the same index instead.
+     */
+    private static boolean conflicts(TokenStreamRewriter rewriter) {
+        try {
+            rewriter.getText();
+            return false;
+        } catch (IllegalArgumentException e) {
+            return true;
+        } catch (Error e) {
+            assertEquals("should only be one op per index", e.getMessage());
+            return true;
+        }
+    }
+
+    private static boolean conflicts(Runnable operation) {
+        try {
+            operation.run();
+            return false;
+        } catch (IllegalArgumentException e) {
+            return true;
+        }
+    }
+
+    private static Supplier<String> describe(long seed, List<Operation> applied, Operation operation) {
+        List<Operation> previous = List.copyOf(applied);
+        return () -> "seed %d: %s after %s".formatted(seed, operation, previous);
+    }
+
+    private static int longestLine(String text) {
+        int longest = 0;
+        for (String line : text.split("\n", -1)) {
+            longest = Math.max(longest, line.length());
+        }
+        return longest;
+    }
+
+    private static String applyEdits(String input, List<RewriteOperations.Edit> edits) {
+        StringBuilder text = new StringBuilder();
+        int position = 0;
+        for (RewriteOperations.Edit edit : edits) {
+            text.append(input, position, edit.start()).append(edit.text());
+            position = edit.stop();
+        }
+        return text.append(input, position, input.length()).toString();
+    }
+
+    static int indexOf(CommonTokenStream tokens, String text) {
+        for (int i = 0; i < tokens.size(); i++) {
+            if (tokens.get(i).getText().equals(text)) {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException("No token " + text);
+    }
+
+    static CommonTokenStream tokens(String source) {
+        CommonTokenStream tokens = new CommonTokenStream(new JavaLexer(CharStreams.fromString(source)));
+        tokens.fill();
+        return tokens;
+    }
+}
@@ -0,0 +1,57 @@
+package com.junit4to5.translator.java;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+class RewrittenRegionsTest {
+
+    @Test
+    void findsRegionsLyingInsideAnInterval() {
+        RewrittenRegions regions = new RewrittenRegions(10);
+        regions.add(2, 5);
+
+        assertTrue(regions.anyWithin(2, 5));
+        assertTrue(regions.anyWithin(0, 9));
+        assertFalse(regions.anyWithin(3, 9));
+        assertFalse(regions.anyWithin(0, 4));
+    }
+
+    @Test
+    void findsRegionsLikeScanningThemAll() {
+        Random random = new Random(0);
+        for (int size = 1; size <= 40; size++) {
+            RewrittenRegions regions = new RewrittenRegions(size);
+            List<int[]> added = new ArrayList<>();
+            for (int step = 0; step < 60; step++) {
+                int start = random.nextInt(size);
+                int end = start + 1 + random.nextInt(4);
+                regions.add(start, end);
+                added.add(new int[] {start, end});
+
+                int from = random.nextInt(size + 2) - 1;
+                int to = from + random.nextInt(size + 2);
+                boolean expected = added.stream().anyMatch(region -> region[0] >= from && region[1] <= to);
+                assertEquals(expected, regions.anyWithin(from, to), () -> "%d..%d".formatted(from, to));
+            }
+        }
+    }
+
+    @Test
+    void logsRegionsInTheOrderTheyWereAdded() {
+        RewrittenRegions regions = new RewrittenRegions(40);
+        for (int i = 0; i < 20; i++) {
+            regions.add(39 - i, 40);
+        }
+
+        List<Integer> starts = new ArrayList<>();
+        assertEquals(20, regions.forEachSince(17, (start, end) -> starts.add(start)));
+        assertEquals(List.of(22, 21, 20), starts);
+    }
+}
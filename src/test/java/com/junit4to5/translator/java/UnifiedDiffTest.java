@@ -0,0 +1,181 @@
+package com.junit4to5.translator.java;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.misc.Interval;
+import org.junit.jupiter.api.Test;
+
+class UnifiedDiffTest {
+    private static final String SOURCE = """
+        package p;
+
+        import org.junit.Before;
+        import org.junit.Test;
+
+        public class CalculatorTest {
+            private Calculator calculator;
+
+            @Before
+            public void setUp() {
+                calculator = new Calculator();
+            }
+
+            @Test
+            public void addsNumbers() {
+                assertEquals(3, calculator.add(1, 2));
+            }
+
+            @Test
+            public void subtractsNumbers() {
+                assertEquals(1, calculator.subtract(3, 2));
+            }
+
+            @Test
+            public void multipliesNumbers() {
+                assertEquals(6, calculator.multiply(3, 2));
+            }
+        }""";
+    private static final String[] TEXTS = {"", "x", "yy\n", "\n    z", "w\nv\n", "\n"};
+    private static final Pattern HUNK_HEADER = Pattern.compile("@@ -(\\d+)(?:,(\\d+))? \\+(\\d+)(?:,(\\d+))? @@\n");
+    private static final String NO_NEWLINE = "\\ No newline at end of file\n";
+
+    @Test
+    void writesHunksWithContextLines() throws IOException {
+        CommonTokenStream tokens = RewriteOperationsTest.tokens(SOURCE);
+        RewriteOperations operations = new RewriteOperations(tokens);
+        int classToken = RewriteOperationsTest.indexOf(tokens, "class");
+        operations.replace(classToken, classToken, "final class");
+
+        assertEquals("""
+            --- a/CalculatorTest.java
+            +++ b/CalculatorTest.java
+            @@ -3,7 +3,7 @@
+             import org.junit.Before;
+             import org.junit.Test;
+            \s
+            -public class CalculatorTest {
+            +public final class CalculatorTest {
+                 private Calculator calculator;
+            \s
+                 @Before
+            """, diff(tokens, operations));
+    }
+
+    @Test
+    void writesNothingWithoutEdits() throws IOException {
+        CommonTokenStream tokens = RewriteOperationsTest.tokens(SOURCE);
+        assertEquals("", diff(tokens, new RewriteOperations(tokens)));
+    }
+
+    @Test
+    void appliesBackToTheInput() throws IOException {
+        CommonTokenStream tokens = RewriteOperationsTest.tokens(SOURCE);
+        for (long seed = 0; seed < 2000; seed++) {
+            Random random = new Random(seed);
+            RewriteOperations operations = new RewriteOperations(tokens);
+            for (int step = random.nextInt(6); step >= 0; step--) {
+                int from = random.nextInt(tokens.size());
+                String text = TEXTS[random.nextInt(TEXTS.length)];
+                try {
+                    if (random.nextBoolean()) {
+                        operations.insertBefore(from, text);
+                    } else {
+                        operations.replace(from, Math.min(from + random.nextInt(3), tokens.size() - 1), text);
+                    }
+                } catch (IllegalArgumentException e) {
+                    operations = new RewriteOperations(tokens);
+                }
+            }
+            String diff = diff(tokens, operations);
+            String expected = operations.getText(Interval.of(0, tokens.size() - 1));
+            long current = seed;
+            assertEquals(expected, patch(SOURCE, diff), () -> "seed %d:\n%s".formatted(current, diff));
+        }
+    }
+
+    private static String diff(CommonTokenStream tokens, RewriteOperations operations) throws IOException {
+        StringBuilder diff = new StringBuilder();
+        UnifiedDiff.write(
+            "a/CalculatorTest.java",
+            "b/CalculatorTest.java",
+            tokens.getTokenSource().getInputStream(),
+            operations.edits(),
+            diff);
+        return diff.toString();
+    }
+
+    /**
+     * Applies the diff the way {@code patch} would, checking the context, removed lines and hunk ranges.
+     */
+    private static String patch(String input, String diff) {
+        List<String> oldLines = lines(input);
+        List<String> diffLines = lines(diff);
+        StringBuilder patched = new StringBuilder();
+        int patchedLines = 0;
+        int next = 0;
+        int i = diffLines.isEmpty() ? 0 : 2;
+        while (i < diffLines.size()) {
+            Matcher header = HUNK_HEADER.matcher(diffLines.get(i++));
+            assertTrue(header.matches(), diff);
+            int oldCount = count(header.group(2));
+            int newCount = count(header.group(4));
+            int oldStart = Integer.parseInt(header.group(1)) - (oldCount == 0 ? 0 : 1);
+            int newStart = Integer.parseInt(header.group(3)) - (newCount == 0 ? 0 : 1);
+            while (next < oldStart) {
+                patched.append(oldLines.get(next++));
+                patchedLines++;
+            }
+            assertEquals(newStart, patchedLines, diff);
+            int oldSeen = 0;
+            int newSeen = 0;
+            while (i < diffLines.size() && !diffLines.get(i).startsWith("@@")) {
+                char kind = diffLines.get(i).charAt(0);
+                String line = diffLines.get(i++).substring(1);
+                if (i < diffLines.size() && diffLines.get(i).equals(NO_NEWLINE)) {
+                    line = line.substring(0, line.length() - 1);
+                    i++;
+                }
+                if (kind != '+') {
+                    assertEquals(oldLines.get(next++), line, diff);
+                    oldSeen++;
+                }
+                if (kind != '-') {
+                    patched.append(line);
+                    patchedLines++;
+                    newSeen++;
+                }
+            }
+            assertEquals(oldCount, oldSeen, diff);
+            assertEquals(newCount, newSeen, diff);
+        }
+        while (next < oldLines.size()) {
+            patched.append(oldLines.get(next++));
+        }
+        return patched.toString();
+    }
+
+    private static int count(String group) {
+        return group != null ? Integer.parseInt(group) : 1;
+    }
+
+    private static List<String> lines(String text) {
+        List<String> lines = new ArrayList<>();
+        int start = 0;
+        while (start < text.length()) {
+            int newLine = text.indexOf('\n', start);
+            int stop = newLine == -1 ? text.length() : newLine + 1;
+            lines.add(text.substring(start, stop));
+            start = stop;
+        }
+        return lines;
+    }
+}